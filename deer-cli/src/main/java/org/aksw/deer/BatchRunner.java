@@ -0,0 +1,176 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer;
+
+import org.aksw.deer.io.DeltaSnapshots;
+import org.aksw.deer.io.ParsedInputCache;
+import org.aksw.faraday_cage.engine.CompiledExecutionGraph;
+import org.aksw.faraday_cage.engine.FaradayCageContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs many DEER configurations in a single JVM.
+ * <p>
+ * All runs share the plugins, the configuration cache and the caches of the execution nodes,
+ * parsed input files are shared through the {@link ParsedInputCache}.
+ * Sources may be configuration files or URIs, directories whose {@code .ttl} files are
+ * configurations, or manifests ({@code .txt} or {@code .lst}) listing one configuration per line.
+ * The analytics of each run are written to {@code deer-analytics-<configuration name>.json}.
+ */
+class BatchRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+  private static final int DEFAULT_INPUT_CACHE_SIZE = 16;
+
+  private BatchRunner() {
+
+  }
+
+  /**
+   * Runs all configurations denoted by {@code sources} with at most {@code pipelines} of them
+   * running at the same time.
+   *
+   * @return the number of failed runs
+   */
+  static int run(List<String> sources, int pipelines) {
+    final List<String> configurations = sources.stream()
+      .flatMap(BatchRunner::resolve)
+      .collect(Collectors.toList());
+    if (!ParsedInputCache.isEnabled()) {
+      ParsedInputCache.enable(DEFAULT_INPUT_CACHE_SIZE);
+    }
+    final List<Path> analyticsFiles = assignAnalyticsFiles(configurations);
+    logger.info("Running {} configurations with {} concurrent pipelines...", configurations.size(), pipelines);
+    final long startTime = System.currentTimeMillis();
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, pipelines));
+    int failed = 0;
+    try {
+      final List<Future<?>> runs = new ArrayList<>();
+      for (int i = 0; i < configurations.size(); i++) {
+        final String configuration = configurations.get(i);
+        final Path analyticsFile = analyticsFiles.get(i);
+        runs.add(executor.submit(() -> runSingle(configuration, analyticsFile)));
+      }
+      for (int i = 0; i < runs.size(); i++) {
+        try {
+          runs.get(i).get();
+        } catch (ExecutionException e) {
+          failed++;
+          logger.error("Run of " + configurations.get(i) + " failed", e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while running batch", e);
+    } finally {
+      executor.shutdownNow();
+    }
+    logger.info("Batch of {} configurations done in {}ms, {} failed.", configurations.size(),
+      System.currentTimeMillis() - startTime, failed);
+    return failed;
+  }
+
+  private static void runSingle(String configuration, Path analyticsFile) {
+    final String runId = FaradayCageContext.newRunId();
+    MDC.put("requestId", runId);
+    try {
+      CompiledExecutionGraph compiledExecutionGraph = DeerController.compileDeer(configuration, runId);
+      compiledExecutionGraph.andThen(() -> {
+        DeerController.writeAnalytics(analyticsFile);
+        DeerAnalyticsStore.remove(runId);
+      });
+      compiledExecutionGraph.run();
+      compiledExecutionGraph.join();
+      DeltaSnapshots.commit(runId);
+    } finally {
+      DeltaSnapshots.discard(runId);
+      RunResources.release(runId);
+      MDC.put("requestId", "main");
+    }
+  }
+
+  static Stream<String> resolve(String source) {
+    final Path path;
+    try {
+      path = Paths.get(source);
+    } catch (RuntimeException e) {
+      return Stream.of(source);
+    }
+    try {
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> files = Files.list(path)) {
+          return files.filter(file -> file.getFileName().toString().endsWith(".ttl"))
+            .sorted()
+            .map(Path::toString)
+            .collect(Collectors.toList())
+            .stream();
+        }
+      }
+      final String name = path.getFileName() == null ? "" : path.getFileName().toString();
+      if (Files.isRegularFile(path) && (name.endsWith(".txt") || name.endsWith(".lst"))) {
+        final Path base = path.toAbsolutePath().getParent();
+        return Files.readAllLines(path).stream()
+          .map(String::trim)
+          .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+          .map(line -> line.contains("://") ? line : base.resolve(line).toString());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read batch source " + source, e);
+    }
+    return Stream.of(source);
+  }
+
+  /**
+   * Derives the analytics file of each configuration from its name, numbering duplicates.
+   */
+  static List<Path> assignAnalyticsFiles(List<String> configurations) {
+    final List<Path> result = new ArrayList<>();
+    final Set<String> used = new HashSet<>();
+    for (String configuration : configurations) {
+      String name = configuration.replaceAll("[/\\\\]+$", "");
+      name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+      if (name.endsWith(".ttl")) {
+        name = name.substring(0, name.length() - 4);
+      }
+      name = name.replaceAll("[^\\w.-]", "_");
+      String candidate = name;
+      for (int i = 2; !used.add(candidate); i++) {
+        candidate = name + "-" + i;
+      }
+      result.add(Paths.get("deer-analytics-" + candidate + ".json").toAbsolutePath());
+    }
+    return result;
+  }
+
+}
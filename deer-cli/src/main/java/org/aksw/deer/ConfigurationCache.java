@@ -0,0 +1,159 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer;
+
+import org.aksw.deer.decorators.InstrumentationWrapper;
+import org.aksw.deer.decorators.MemoizationWrapper;
+import org.aksw.deer.util.LazyUnionGraph;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of parsed and decorated DEER configurations, keyed by the SHA-256 hash of
+ * the configuration file's content and the base URI relative IRIs are resolved against,
+ * i.e. the file's location.
+ * <p>
+ * Resubmitting a configuration only costs hashing its bytes, every lookup yields a fresh
+ * copy-on-write view of the cached model so that compilation can never alter the cached
+ * entry. Configurations not given as local files are parsed anew each time.
+ * Only parsing and decoration are saved: faraday-cage compiles and validates a configuration
+ * into a single-use execution graph in one step, so both still happen on every run.
+ * The least recently used entries are evicted once the capacity, configurable through
+ * the system property {@code deer.configurationCacheSize}, is reached.
+ */
+public class ConfigurationCache {
+
+  private static final int DEFAULT_CAPACITY = 64;
+
+  private static final ConfigurationCache instance =
+    new ConfigurationCache(Integer.getInteger("deer.configurationCacheSize", DEFAULT_CAPACITY));
+
+  static {
+    DeerMetrics.counter("deer_cache_requests_total", "Lookups in the caches of DEER nodes.",
+      instance::getHits, "cache", "configuration", "result", "hit");
+    DeerMetrics.counter("deer_cache_requests_total", "Lookups in the caches of DEER nodes.",
+      instance::getMisses, "cache", "configuration", "result", "miss");
+  }
+
+  public static ConfigurationCache getInstance() {
+    return instance;
+  }
+
+  private final Map<String, Model> backend;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public ConfigurationCache(int capacity) {
+    this.backend = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Model> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Returns the decorated configuration model read from {@code fileName}.
+   */
+  public Model get(String fileName) {
+    final Path file;
+    try {
+      file = Paths.get(fileName);
+    } catch (InvalidPathException e) {
+      return load(fileName);
+    }
+    if (!Files.isRegularFile(file)) {
+      return load(fileName);
+    }
+    final byte[] content;
+    try {
+      content = Files.readAllBytes(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read configuration " + fileName, e);
+    }
+    final String base = file.toAbsolutePath().toUri().toString();
+    // relative IRIs are resolved against the file's location, so equal content elsewhere differs
+    final String key = sha256(content) + " " + base;
+    Model cached;
+    synchronized (backend) {
+      cached = backend.get(key);
+    }
+    if (cached != null) {
+      hits.increment();
+    } else {
+      // parse outside of the lock, a concurrent miss on the same key just parses twice
+      misses.increment();
+      cached = ModelFactory.createDefaultModel();
+      RDFDataMgr.read(cached, new ByteArrayInputStream(content), base, Lang.TTL);
+      MemoizationWrapper.decorateAll(InstrumentationWrapper.decorateAll(cached));
+      synchronized (backend) {
+        backend.putIfAbsent(key, cached);
+      }
+    }
+    return LazyUnionGraph.union(List.of(cached), false);
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public int size() {
+    synchronized (backend) {
+      return backend.size();
+    }
+  }
+
+  private static Model load(String location) {
+    Model configuration = ModelFactory.createDefaultModel();
+    RDFDataMgr.read(configuration, location, Lang.TTL);
+    return MemoizationWrapper.decorateAll(InstrumentationWrapper.decorateAll(configuration));
+  }
+
+  private static String sha256(byte[] content) {
+    try {
+      final StringBuilder hex = new StringBuilder(64);
+      for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+}
@@ -17,10 +17,13 @@
  */
 package org.aksw.deer;
 
+import org.aksw.deer.decorators.SparqlAnalyticsWrapper;
 import org.aksw.deer.enrichments.EnrichmentOperator;
+import org.aksw.deer.io.DeltaSnapshots;
 import org.aksw.deer.io.ModelReader;
 import org.aksw.deer.io.ModelWriter;
 import org.aksw.deer.server.Server;
+import org.aksw.deer.util.SparqlQueryCache;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.CompiledExecutionGraph;
 import org.aksw.faraday_cage.engine.FaradayCageContext;
@@ -33,8 +36,6 @@ import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
-import org.apache.jena.riot.Lang;
-import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.vocabulary.RDFS;
 import org.json.JSONObject;
 import org.pf4j.DefaultPluginManager;
@@ -87,22 +88,48 @@ public class DeerController {
     .addOption(Option.builder("p")
       .longOpt("port").desc("set port for server to listen on")
       .hasArg().argName("port_number").type(Number.class).build())
+    .addOption(Option.builder("b")
+      .longOpt("batch").desc("run all given configurations, directories of configurations or manifests (.txt, .lst) listing configurations in one JVM")
+      .build())
+    .addOption(Option.builder("j")
+      .longOpt("jobs").desc("number of configurations to run concurrently in batch mode (default: 1)")
+      .hasArg().argName("count").type(Number.class).build())
+    .addOption(Option.builder("w")
+      .longOpt("watch").desc("run the configuration again whenever it or one of its input files changes")
+      .build())
     ;
 
-  private static final PluginManager pluginManager = new DefaultPluginManager();
+  /**
+   * Holder of the plugin manager and execution context, so that plugins are only discovered
+   * once a command actually needs them.
+   */
+  private static class Plugins {
 
-  static {
-    File plugins = new File("./plugins/");
-    if (plugins.exists() && plugins.isDirectory()) {
-      pluginManager.loadPlugins();
-      pluginManager.startPlugins();
+    private static final PluginManager pluginManager = new DefaultPluginManager();
+
+    static {
+      File plugins = new File("./plugins/");
+      if (plugins.exists() && plugins.isDirectory()) {
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+      }
     }
+
+    private static final FaradayCageContext executionContext = Deer.getExecutionContext(pluginManager);
+
   }
 
-  private static final FaradayCageContext executionContext = Deer.getExecutionContext(pluginManager);
+  /**
+   * Holder of the complete validation graph, built on first request only.
+   */
+  private static class Shapes {
+
+    private static final Model model = buildShapes();
+
+  }
 
   private static <U extends Plugin> Model getClassHierarchy(Class<U> clazz, Resource type) {
-    PluginFactory<U> uPluginFactory = new PluginFactory<>(clazz, DeerController.pluginManager, type);
+    PluginFactory<U> uPluginFactory = new PluginFactory<>(clazz, Plugins.pluginManager, type);
     List<Resource> list = uPluginFactory.listAvailable();
     for (Resource r : list) {
       DeerPlugin instance = (DeerPlugin) uPluginFactory.getImplementationOf(r);
@@ -114,8 +141,16 @@ public class DeerController {
     return res;
   }
 
+  /**
+   * Returns the complete validation graph of all available plugins, including their class hierarchy.
+   * The graph is built once and shared, callers must not modify it.
+   */
   public static Model getShapes() {
-    return executionContext.getFullValidationModel()
+    return Shapes.model;
+  }
+
+  private static Model buildShapes() {
+    return Plugins.executionContext.getFullValidationModel()
       .add(getClassHierarchy(EnrichmentOperator.class, DEER.EnrichmentOperator))
       .add(getClassHierarchy(ModelReader.class, DEER.ModelReader))
       .add(getClassHierarchy(ModelWriter.class, DEER.ModelWriter))
@@ -129,16 +164,16 @@ public class DeerController {
     } else if (cl.hasOption('l')) {
       PrintStream out = System.out;
       out.println(EnrichmentOperator.class.getSimpleName() + ":");
-      new PluginFactory<>(EnrichmentOperator.class, pluginManager, FCAGE.ExecutionNode)
+      new PluginFactory<>(EnrichmentOperator.class, Plugins.pluginManager, FCAGE.ExecutionNode)
         .listAvailable().forEach(out::println);
       out.println(ModelReader.class.getSimpleName() + ":");
-      new PluginFactory<>(ModelReader.class, pluginManager, FCAGE.ExecutionNode)
+      new PluginFactory<>(ModelReader.class, Plugins.pluginManager, FCAGE.ExecutionNode)
         .listAvailable().forEach(out::println);
       out.println(ModelWriter.class.getSimpleName() + ":");
-      new PluginFactory<>(ModelWriter.class, pluginManager, FCAGE.ExecutionNode)
+      new PluginFactory<>(ModelWriter.class, Plugins.pluginManager, FCAGE.ExecutionNode)
         .listAvailable().forEach(out::println);
       out.println(DeerExecutionNodeWrapper.class.getSimpleName() + ":");
-      new PluginFactory<>(DeerExecutionNodeWrapper.class, pluginManager, FCAGE.ExecutionNode)
+      new PluginFactory<>(DeerExecutionNodeWrapper.class, Plugins.pluginManager, FCAGE.ExecutionNode)
         .listAvailable().forEach(out::println);
     }  else if (cl.hasOption('v')) {
       PrintStream out = System.out;
@@ -147,9 +182,9 @@ public class DeerController {
         if (id.startsWith("deer:")) {
           id = DEER.NS + id.substring(5);
         }
-        executionContext.getValidationModelFor(ResourceFactory.createResource(id)).write(out, "TTL");
+        Plugins.executionContext.getValidationModelFor(ResourceFactory.createResource(id)).write(out, "TTL");
       } else {
-        executionContext.getFullValidationModel().write(out, "TTL");
+        Plugins.executionContext.getFullValidationModel().write(out, "TTL");
       }
     } else if (cl.hasOption('s')) {
       Object port = cl.hasOption('p') ? cl.getOptionObject('p') : DEFAULT_PORT;
@@ -160,6 +195,21 @@ public class DeerController {
       }
     } else if (cl.getArgList().size() == 0){
       exitWithError("Please specify a configuration file to use!");
+    } else if (cl.hasOption('b')) {
+      if (cl.hasOption('E')) {
+        AbstractSPARQLExecutor.createDetails = true;
+      }
+      Object jobs = cl.hasOption('j') ? cl.getOptionObject('j') : 1;
+      if (jobs == null) {
+        exitWithError("Expected a number as argument for option: j");
+      } else if (BatchRunner.run(cl.getArgList(), ((Number) jobs).intValue()) > 0) {
+        System.exit(1);
+      }
+    } else if (cl.hasOption('w')) {
+      if (cl.hasOption('E')) {
+        AbstractSPARQLExecutor.createDetails = true;
+      }
+      WatchRunner.run(cl.getArgList().get(0));
     } else {
       if (cl.hasOption('E')) {
         AbstractSPARQLExecutor.createDetails = true;
@@ -197,11 +247,10 @@ public class DeerController {
   public static CompiledExecutionGraph compileDeer(String fileName, String runId) {
     logger.info("Trying to read DEER configuration from file {}...", fileName);
     try {
-      Model configurationModel = ModelFactory.createDefaultModel();
       final long startTime = System.currentTimeMillis();
-      RDFDataMgr.read(configurationModel, fileName, Lang.TTL);
+      Model configurationModel = ConfigurationCache.getInstance().get(fileName);
       logger.info("Loading {} is done in {}ms.", fileName, (System.currentTimeMillis() - startTime));
-      return executionContext.compile(configurationModel, runId);
+      return Plugins.executionContext.compile(configurationModel, runId);
     } catch (HttpException e) {
       throw new RuntimeException("Encountered HTTPException trying to load model from " + fileName, e);
     }
@@ -210,24 +259,31 @@ public class DeerController {
   public static CompiledExecutionGraph compileDeer(String fileName) {
     logger.info("Trying to read DEER configuration from file {}...", fileName);
     try {
-      Model configurationModel = ModelFactory.createDefaultModel();
       final long startTime = System.currentTimeMillis();
-      RDFDataMgr.read(configurationModel, fileName, Lang.TTL);
+      Model configurationModel = ConfigurationCache.getInstance().get(fileName);
       logger.info("Loading {} is done in {}ms.", fileName, (System.currentTimeMillis() - startTime));
-      return executionContext.compile(configurationModel);
+      return Plugins.executionContext.compile(configurationModel);
     } catch (HttpException e) {
       throw new RuntimeException("Encountered HTTPException trying to load model from " + fileName, e);
     }
   }
 
   private static void runDeer(CompiledExecutionGraph compiledExecutionGraph) {
-    compiledExecutionGraph.andThen(() -> writeAnalytics(Paths.get("deer-analytics.json").toAbsolutePath()));
-    executionContext.run(compiledExecutionGraph);
+    compiledExecutionGraph.andThen(() -> {
+      writeAnalytics(Paths.get("deer-analytics.json").toAbsolutePath());
+      DeltaSnapshots.commit(FaradayCageContext.getRunId());
+      RunResources.release(FaradayCageContext.getRunId());
+    });
+    Plugins.executionContext.run(compiledExecutionGraph);
   }
 
   public static void writeAnalytics(Path analyticsFile) {
     try {
       logger.info("Trying to write analytics data to " + analyticsFile);
+      SparqlAnalyticsWrapper.awaitPending(FaradayCageContext.getRunId());
+      // the query cache is shared by all nodes and runs, so its statistics are recorded once per run
+      DeerAnalyticsStore.write(FaradayCageContext.getRunId(), null,
+        new JSONObject().put("sparqlQueryCache", SparqlQueryCache.getInstance().getStatistics()));
       BufferedWriter writer = Files.newBufferedWriter(analyticsFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE);
       JSONObject analyticsForJob = DeerAnalyticsStore.getAnalyticsForJob(FaradayCageContext.getRunId());
       analyticsForJob.write(writer, 2, 0);
@@ -0,0 +1,173 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer;
+
+import org.aksw.deer.decorators.MemoizationWrapper;
+import org.aksw.deer.enrichments.LinkingEnrichmentOperator;
+import org.aksw.deer.io.AbstractModelIO;
+import org.aksw.deer.io.DeltaSnapshots;
+import org.aksw.deer.io.FileModelReader;
+import org.aksw.deer.io.ParsedInputCache;
+import org.aksw.faraday_cage.engine.CompiledExecutionGraph;
+import org.aksw.faraday_cage.engine.FaradayCageContext;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a DEER configuration over and over, each time one of its input files or the configuration
+ * itself changes.
+ * <p>
+ * Parsed inputs are kept in the {@link ParsedInputCache} and all enrichment operators are
+ * decorated with a {@link MemoizationWrapper}, so after a change only the nodes depending on
+ * the changed file are executed again, unchanged branches reuse their previous outputs.
+ */
+class WatchRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(WatchRunner.class);
+
+  private static final int DEFAULT_INPUT_CACHE_SIZE = 64;
+
+  /**
+   * Editors tend to write files in several steps, so changes are collected until it is quiet.
+   */
+  private static final long DEBOUNCE_MILLIS = 200;
+
+  private WatchRunner() {
+
+  }
+
+  static void run(String configuration) {
+    System.setProperty(MemoizationWrapper.ENABLED_PROPERTY, "true");
+    if (!ParsedInputCache.isEnabled()) {
+      ParsedInputCache.enable(DEFAULT_INPUT_CACHE_SIZE);
+    }
+    try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+      final Set<Path> registered = new HashSet<>();
+      while (true) {
+        final Set<Path> watched = getWatchedFiles(configuration);
+        runOnce(configuration);
+        for (Path file : watched) {
+          final Path directory = file.getParent();
+          if (directory != null && Files.isDirectory(directory) && registered.add(directory)) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+          }
+        }
+        logger.info("Watching {} files for changes...", watched.size());
+        final Set<Path> changed = awaitChanges(watcher, watched);
+        logger.info("Re-running {} after changes to {}", configuration, changed);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not watch inputs of " + configuration, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.info("Stopped watching {}", configuration);
+    }
+  }
+
+  private static void runOnce(String configuration) {
+    final String runId = FaradayCageContext.newRunId();
+    MDC.put("requestId", runId);
+    final long startTime = System.currentTimeMillis();
+    try {
+      CompiledExecutionGraph compiledExecutionGraph = DeerController.compileDeer(configuration, runId);
+      compiledExecutionGraph.andThen(() -> {
+        DeerController.writeAnalytics(Paths.get("deer-analytics.json").toAbsolutePath());
+        DeerAnalyticsStore.remove(runId);
+      });
+      compiledExecutionGraph.run();
+      compiledExecutionGraph.join();
+      DeltaSnapshots.commit(runId);
+      logger.info("Run of {} done in {}ms.", configuration, System.currentTimeMillis() - startTime);
+    } catch (RuntimeException e) {
+      // keep watching, the next edit will most likely fix the problem
+      logger.error("Run of " + configuration + " failed", e);
+    } finally {
+      DeltaSnapshots.discard(runId);
+      RunResources.release(runId);
+      MDC.put("requestId", "main");
+    }
+  }
+
+  /**
+   * Returns the configuration file and all files read through {@code deer:fromPath} or {@code deer:specFile}.
+   */
+  private static Set<Path> getWatchedFiles(String configuration) {
+    final Set<Path> files = new HashSet<>();
+    try {
+      files.add(Paths.get(configuration).toAbsolutePath().normalize());
+    } catch (InvalidPathException e) {
+      logger.warn("Configuration {} is not a local file and will not be watched.", configuration);
+      return files;
+    }
+    try {
+      final Model model = ConfigurationCache.getInstance().get(configuration);
+      getPaths(model, FileModelReader.FROM_PATH)
+        .forEach(path -> files.add(Paths.get(AbstractModelIO.injectWorkingDirectory(path)).toAbsolutePath().normalize()));
+      // LIMES resolves specification files against the working directory of the JVM
+      getPaths(model, LinkingEnrichmentOperator.SPEC_FILE)
+        .forEach(path -> files.add(Paths.get(path).toAbsolutePath().normalize()));
+    } catch (RuntimeException e) {
+      logger.warn("Could not determine the inputs of {}, watching the configuration only.", configuration, e);
+    }
+    return files;
+  }
+
+  private static List<String> getPaths(Model configuration, Property property) {
+    return configuration.listObjectsOfProperty(property).toList().stream()
+      .filter(RDFNode::isLiteral)
+      .map(RDFNode::asLiteral)
+      .map(Literal::getString)
+      .collect(Collectors.toList());
+  }
+
+  private static Set<Path> awaitChanges(WatchService watcher, Set<Path> watched) throws InterruptedException {
+    final Set<Path> changed = new HashSet<>();
+    WatchKey key = watcher.take();
+    while (key != null) {
+      final Path directory = (Path) key.watchable();
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          changed.addAll(watched);
+        } else {
+          final Path file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+          if (watched.contains(file)) {
+            changed.add(file);
+          }
+        }
+      }
+      key.reset();
+      key = changed.isEmpty() ? watcher.take() : watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    return changed;
+  }
+
+}
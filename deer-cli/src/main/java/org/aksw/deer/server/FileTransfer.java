@@ -0,0 +1,228 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.server;
+
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams files of the DEER {@link Server} to clients.
+ * <p>
+ * Downloads support conditional requests ({@code ETag}), single byte ranges and gzip
+ * compression of textual content. Uncompressed content is transferred channel to channel in
+ * small chunks, so that neither large heap buffers nor memory mappings are held per download.
+ * Logs of running jobs are tailed by polling for appended content once per second, either as
+ * plain text or as server-sent events.
+ */
+final class FileTransfer {
+
+  private static final Pattern RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+  private FileTransfer() {
+
+  }
+
+  static void sendFile(Request req, Response res, Path file, String mimeType, String downloadName) throws IOException {
+    final HttpServletResponse raw = res.raw();
+    final long length = Files.size(file);
+    final long lastModified = Files.getLastModifiedTime(file).toMillis();
+    final boolean compressible = isCompressible(mimeType);
+    final boolean gzip = compressible && req.headers("Range") == null && acceptsGzip(req.headers("Accept-Encoding"));
+    final String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + (gzip ? "-gzip" : "") + "\"";
+    res.type(mimeType);
+    raw.setHeader("ETag", etag);
+    raw.setDateHeader("Last-Modified", lastModified);
+    raw.setHeader("Accept-Ranges", "bytes");
+    raw.setHeader("Content-Disposition", "attachment; filename=" + downloadName);
+    if (compressible) {
+      raw.setHeader("Vary", "Accept-Encoding");
+    }
+    final String ifNoneMatch = req.headers("If-None-Match");
+    if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(etag))) {
+      raw.setStatus(304);
+      return;
+    }
+    if (gzip) {
+      raw.setStatus(200);
+      raw.setHeader("Content-Encoding", "gzip");
+      try (OutputStream os = new GZIPOutputStream(raw.getOutputStream(), 1 << 16)) {
+        Files.copy(file, os);
+      }
+      return;
+    }
+    long start = 0;
+    long end = length - 1;
+    boolean partial = false;
+    final String range = req.headers("Range");
+    final String ifRange = req.headers("If-Range");
+    if (range != null && (ifRange == null || ifRange.equals(etag))) {
+      Matcher matcher = RANGE.matcher(range.trim());
+      // multiple or malformed ranges are answered with the full content
+      if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+        try {
+          if (matcher.group(1).isEmpty()) {
+            start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+          } else {
+            start = Long.parseLong(matcher.group(1));
+            if (!matcher.group(2).isEmpty()) {
+              end = Math.min(end, Long.parseLong(matcher.group(2)));
+            }
+          }
+          partial = true;
+        } catch (NumberFormatException e) {
+          start = 0;
+          end = length - 1;
+        }
+        if (partial && (start >= length || start > end)) {
+          raw.setStatus(416);
+          raw.setHeader("Content-Range", "bytes */" + length);
+          return;
+        }
+      }
+    }
+    if (partial) {
+      raw.setStatus(206);
+      raw.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+    } else {
+      raw.setStatus(200);
+    }
+    final long count = Math.max(0, end - start + 1);
+    raw.setContentLengthLong(count);
+    transfer(file, start, count, raw.getOutputStream());
+  }
+
+  private static void transfer(Path file, long position, long count, OutputStream out) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final WritableByteChannel target = Channels.newChannel(out);
+      long remaining = count;
+      while (remaining > 0) {
+        long transferred = channel.transferTo(position, remaining, target);
+        if (transferred <= 0) {
+          break;
+        }
+        position += transferred;
+        remaining -= transferred;
+      }
+      out.flush();
+    }
+  }
+
+  /**
+   * Streams {@code file} and everything appended to it until {@code finished} is true.
+   */
+  static void tailFile(Request req, Response res, Path file, BooleanSupplier finished)
+    throws IOException, InterruptedException {
+    final HttpServletResponse raw = res.raw();
+    final String accept = req.headers("Accept");
+    final boolean eventStream = accept != null && accept.contains("text/event-stream");
+    if (eventStream) {
+      res.type("text/event-stream");
+      raw.setHeader("Cache-Control", "no-cache");
+    } else {
+      res.type("text/plain");
+      raw.setHeader("Content-Disposition", "attachment; filename=log.txt");
+    }
+    raw.setStatus(200);
+    final OutputStream os = raw.getOutputStream();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      final ByteArrayOutputStream line = new ByteArrayOutputStream();
+      while (true) {
+        // check before draining, so that nothing written before completion is lost
+        final boolean done = finished.getAsBoolean();
+        while (channel.read(buffer) > 0) {
+          buffer.flip();
+          if (eventStream) {
+            writeEvents(buffer, line, os);
+          } else {
+            os.write(buffer.array(), 0, buffer.limit());
+          }
+          buffer.clear();
+        }
+        os.flush();
+        if (done) {
+          break;
+        }
+        // a watch service per request would exhaust the inotify instances of the server
+        TimeUnit.SECONDS.sleep(1);
+      }
+      if (eventStream) {
+        if (line.size() > 0) {
+          writeEvent(line, os);
+        }
+        os.write("event: end\ndata: finished\n\n".getBytes(StandardCharsets.UTF_8));
+      }
+      os.flush();
+    }
+  }
+
+  private static void writeEvents(ByteBuffer buffer, ByteArrayOutputStream line, OutputStream os) throws IOException {
+    while (buffer.hasRemaining()) {
+      byte b = buffer.get();
+      if (b == '\n') {
+        writeEvent(line, os);
+      } else if (b != '\r') {
+        line.write(b);
+      }
+    }
+  }
+
+  private static void writeEvent(ByteArrayOutputStream line, OutputStream os) throws IOException {
+    os.write("data: ".getBytes(StandardCharsets.UTF_8));
+    line.writeTo(os);
+    os.write("\n\n".getBytes(StandardCharsets.UTF_8));
+    line.reset();
+  }
+
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.toLowerCase().split(",")) {
+      String[] parts = coding.trim().split(";");
+      if (parts[0].trim().equals("gzip")) {
+        // gzip;q=0 explicitly refuses compressed content
+        return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+
+  private static boolean isCompressible(String mimeType) {
+    final String type = mimeType.toLowerCase();
+    return type.startsWith("text/") || type.contains("json") || type.contains("xml")
+      || type.contains("turtle") || type.contains("n-triples") || type.contains("n-quads") || type.contains("trig");
+  }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.server;
+
+import org.aksw.deer.DeerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded scheduler for the jobs of the DEER {@link Server}.
+ * <p>
+ * At most {@code maxConcurrentJobs} jobs run at the same time on a dedicated pool,
+ * at most {@code queueCapacity} further jobs wait in FIFO order and any further submission
+ * is rejected. Every job declares an estimate of the heap it needs; a queued job is only
+ * started while the estimates of all running jobs plus its own fit into {@code memoryBudget},
+ * unless no other job is running. Heap that is occupied before a job is submitted, such as
+ * models parsed from its upload, is accounted for through {@link #reserve(long)}.
+ */
+public class JobScheduler {
+
+  private static final Logger logger = LoggerFactory.getLogger(JobScheduler.class);
+
+  private static final DeerMetrics.Histogram queueWait =
+    DeerMetrics.histogram("deer_job_queue_wait_seconds", "Time between submission and start of jobs.");
+
+  private static final DeerMetrics.Histogram jobDuration =
+    DeerMetrics.histogram("deer_job_duration_seconds", "Execution time of jobs.");
+
+  private static final DeerMetrics.Counter jobsRejected =
+    DeerMetrics.counter("deer_jobs_rejected_total", "Jobs rejected because the queue was full.");
+
+  private final int maxConcurrentJobs;
+  private final int queueCapacity;
+  private final long memoryBudget;
+  private final ExecutorService workers;
+  private final Deque<Job> queue = new ArrayDeque<>();
+  private int running = 0;
+  private long reservedMemory = 0;
+
+  public JobScheduler(int maxConcurrentJobs, int queueCapacity, long memoryBudget) {
+    if (maxConcurrentJobs < 1 || queueCapacity < 0) {
+      throw new IllegalArgumentException("Invalid job scheduler limits: " + maxConcurrentJobs + " concurrent jobs, "
+        + queueCapacity + " queued jobs");
+    }
+    this.maxConcurrentJobs = maxConcurrentJobs;
+    this.queueCapacity = queueCapacity;
+    this.memoryBudget = memoryBudget;
+    final AtomicInteger threadCounter = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(maxConcurrentJobs, r -> {
+      Thread thread = new Thread(r, "DeerJob-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    DeerMetrics.gauge("deer_jobs_running", "Jobs currently executed by the DEER server.", this::getRunningJobs);
+    DeerMetrics.gauge("deer_jobs_queued", "Jobs waiting for execution on the DEER server.", this::getQueuedJobs);
+    DeerMetrics.gauge("deer_jobs_reserved_memory_bytes", "Estimated heap reserved by running jobs.", this::getReservedMemory);
+    logger.info("Scheduling at most {} concurrent jobs, {} queued jobs, within a memory budget of {}MB",
+      maxConcurrentJobs, queueCapacity, memoryBudget / (1024 * 1024));
+  }
+
+  /**
+   * Creates a scheduler configured through the system properties
+   * {@code deer.server.maxConcurrentJobs} (default: half the available processors),
+   * {@code deer.server.queueSize} (default: 16) and
+   * {@code deer.server.memoryBudget} in bytes (default: 75% of the maximum heap).
+   */
+  public static JobScheduler fromSystemProperties() {
+    return new JobScheduler(
+      Integer.getInteger("deer.server.maxConcurrentJobs", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+      Integer.getInteger("deer.server.queueSize", 16),
+      Long.getLong("deer.server.memoryBudget", Runtime.getRuntime().maxMemory() / 4 * 3));
+  }
+
+  /**
+   * @return true if a job submitted now would not be rejected
+   */
+  public synchronized boolean hasCapacity() {
+    return queue.size() < queueCapacity || (queue.isEmpty() && running < maxConcurrentJobs);
+  }
+
+  /**
+   * Queues {@code task} for execution.
+   *
+   * @param memoryEstimate the estimated heap needed by the job in bytes
+   * @return a future completing with the job
+   * @throws RejectedExecutionException if the queue is full
+   */
+  public synchronized CompletableFuture<Void> submit(String id, long memoryEstimate, Runnable task) {
+    if (!hasCapacity()) {
+      jobsRejected.increment();
+      throw new RejectedExecutionException("Job queue is full, rejecting job " + id);
+    }
+    Job job = new Job(id, memoryEstimate, task);
+    queue.add(job);
+    dispatch();
+    return job.future;
+  }
+
+  /**
+   * Reserves {@code bytes} of the memory budget outside of any job, which delays the start
+   * of queued jobs until the reservation is {@linkplain #release(long) released}.
+   *
+   * @return true if the reservation fits into the remaining budget and has been made
+   */
+  public synchronized boolean reserve(long bytes) {
+    if (reservedMemory + bytes > memoryBudget) {
+      return false;
+    }
+    reservedMemory += bytes;
+    return true;
+  }
+
+  /**
+   * Releases {@code bytes} previously {@linkplain #reserve(long) reserved}.
+   */
+  public synchronized void release(long bytes) {
+    if (bytes > 0) {
+      reservedMemory -= bytes;
+      dispatch();
+    }
+  }
+
+  /**
+   * @return true if the job with the given id is waiting for execution
+   */
+  public synchronized boolean isQueued(String id) {
+    return queue.stream().anyMatch(job -> job.id.equals(id));
+  }
+
+  public synchronized int getRunningJobs() {
+    return running;
+  }
+
+  public synchronized int getQueuedJobs() {
+    return queue.size();
+  }
+
+  public synchronized long getReservedMemory() {
+    return reservedMemory;
+  }
+
+  private synchronized void dispatch() {
+    while (!queue.isEmpty() && running < maxConcurrentJobs) {
+      Job job = queue.peek();
+      if (running > 0 && reservedMemory + job.memoryEstimate > memoryBudget) {
+        break;
+      }
+      queue.poll();
+      running++;
+      reservedMemory += job.memoryEstimate;
+      workers.execute(() -> execute(job));
+    }
+  }
+
+  private void execute(Job job) {
+    final long startTime = System.nanoTime();
+    queueWait.observe((startTime - job.submitTime) / 1e9);
+    try {
+      job.task.run();
+      job.future.complete(null);
+    } catch (Throwable e) {
+      job.future.completeExceptionally(e);
+    } finally {
+      jobDuration.observe((System.nanoTime() - startTime) / 1e9);
+      synchronized (this) {
+        running--;
+        reservedMemory -= job.memoryEstimate;
+        dispatch();
+      }
+    }
+  }
+
+  private static class Job {
+
+    private final String id;
+    private final long memoryEstimate;
+    private final Runnable task;
+    private final long submitTime = System.nanoTime();
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private Job(String id, long memoryEstimate, Runnable task) {
+      this.id = id;
+      this.memoryEstimate = memoryEstimate;
+      this.task = task;
+    }
+
+  }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming reader for {@code multipart/form-data} request bodies.
+ * <p>
+ * Unlike the servlet container's multipart support, which buffers the whole request
+ * before handing out any part, parts are returned as soon as their headers have arrived
+ * and their content is read directly from the request body. A part has to be consumed
+ * before the next one is requested, any unread rest of it is skipped.
+ */
+final class MultipartReader {
+
+  private static final Pattern BOUNDARY = Pattern.compile("boundary=(?:\"([^\"]+)\"|([^;\\s]+))");
+
+  private static final Pattern NAME = Pattern.compile("(?:^|;)\\s*name=\"([^\"]*)\"");
+
+  private static final Pattern FILE_NAME = Pattern.compile("(?:^|;)\\s*filename=\"([^\"]*)\"");
+
+  private static final int MAX_HEADER_LENGTH = 8192;
+
+  private final InputStream in;
+  private final byte[] delimiter;
+  private final byte[] buffer;
+  private int position = 0;
+  private int limit = 0;
+  private PartInputStream current;
+  private boolean finished = false;
+
+  MultipartReader(InputStream in, String contentType) {
+    final Matcher matcher = BOUNDARY.matcher(contentType == null ? "" : contentType);
+    if (!matcher.find()) {
+      throw new IllegalArgumentException("No multipart boundary in content type " + contentType);
+    }
+    final String boundary = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    this.in = in;
+    this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+    this.buffer = new byte[Math.max(1 << 16, 4 * delimiter.length)];
+    // the first delimiter is not preceded by a line break, pretend it was
+    buffer[limit++] = '\r';
+    buffer[limit++] = '\n';
+    // everything before the first delimiter is preamble and gets skipped like a part
+    this.current = new PartInputStream();
+  }
+
+  /**
+   * Skips the rest of the current part and returns the next one.
+   *
+   * @return the next part or {@code null} if the body is exhausted
+   */
+  Part next() throws IOException {
+    if (finished) {
+      return null;
+    }
+    current.skipAll();
+    final int first = readByte();
+    final int second = readByte();
+    if (first == '-' && second == '-') {
+      finished = true;
+      return null;
+    }
+    if (first != '\r' || second != '\n') {
+      throw new IOException("Malformed multipart body");
+    }
+    String name = null;
+    String fileName = null;
+    for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+      final int colon = header.indexOf(':');
+      if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Disposition")) {
+        final String value = header.substring(colon + 1);
+        final Matcher nameMatcher = NAME.matcher(value);
+        name = nameMatcher.find() ? nameMatcher.group(1) : null;
+        final Matcher fileNameMatcher = FILE_NAME.matcher(value);
+        fileName = fileNameMatcher.find() ? fileNameMatcher.group(1) : null;
+      }
+    }
+    current = new PartInputStream();
+    return new Part(name, fileName, current);
+  }
+
+  private int readByte() throws IOException {
+    if (position == limit && fill() < 0) {
+      throw new EOFException("Unexpected end of multipart body");
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  private String readLine() throws IOException {
+    final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = readByte()) != '\n') {
+      if (line.size() == MAX_HEADER_LENGTH) {
+        throw new IOException("Multipart header exceeds " + MAX_HEADER_LENGTH + " bytes");
+      }
+      line.write(b);
+    }
+    final String result = line.toString(StandardCharsets.UTF_8);
+    return result.endsWith("\r") ? result.substring(0, result.length() - 1) : result;
+  }
+
+  /**
+   * Moves the unread bytes to the front of the buffer and reads more input behind them.
+   */
+  private int fill() throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+    }
+    final int read = in.read(buffer, limit, buffer.length - limit);
+    if (read > 0) {
+      limit += read;
+    }
+    return read;
+  }
+
+  private int indexOfDelimiter() {
+    final int last = limit - delimiter.length;
+    outer:
+    for (int i = position; i <= last; i++) {
+      for (int j = 0; j < delimiter.length; j++) {
+        if (buffer[i + j] != delimiter[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  static final class Part {
+
+    private final String name;
+    private final String fileName;
+    private final InputStream inputStream;
+
+    private Part(String name, String fileName, InputStream inputStream) {
+      this.name = name;
+      this.fileName = fileName;
+      this.inputStream = inputStream;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    String getFileName() {
+      return fileName;
+    }
+
+    InputStream getInputStream() {
+      return inputStream;
+    }
+
+  }
+
+  private class PartInputStream extends InputStream {
+
+    private boolean done = false;
+
+    @Override
+    public int read() throws IOException {
+      final byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (done) {
+        return -1;
+      }
+      if (len == 0) {
+        return 0;
+      }
+      while (true) {
+        final int index = indexOfDelimiter();
+        if (index == position) {
+          position += delimiter.length;
+          done = true;
+          return -1;
+        }
+        // without a delimiter in sight, the last bytes may still be the start of one
+        final int available = (index >= 0 ? index : limit - delimiter.length + 1) - position;
+        if (available > 0) {
+          final int count = Math.min(len, available);
+          System.arraycopy(buffer, position, b, off, count);
+          position += count;
+          return count;
+        }
+        if (fill() < 0) {
+          throw new EOFException("Unexpected end of multipart body");
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+      // the request body is owned by the reader
+    }
+
+    private void skipAll() throws IOException {
+      final byte[] skipped = new byte[8192];
+      while (read(skipped, 0, skipped.length) >= 0) {
+        // discard
+      }
+    }
+
+  }
+
+}
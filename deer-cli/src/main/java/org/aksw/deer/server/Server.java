@@ -21,11 +21,20 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import eu.medsea.mimeutil.MimeType;
 import eu.medsea.mimeutil.MimeUtil;
+import org.aksw.deer.DeerAnalyticsStore;
 import org.aksw.deer.DeerController;
+import org.aksw.deer.DeerMetrics;
+import org.aksw.deer.RunResources;
 import org.aksw.deer.io.AbstractModelIO;
+import org.aksw.deer.io.DeltaSnapshots;
+import org.aksw.deer.io.PreloadedModels;
 import org.aksw.faraday_cage.engine.CompiledExecutionGraph;
 import org.aksw.faraday_cage.engine.FaradayCageContext;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -34,6 +43,8 @@ import spark.Response;
 
 import javax.servlet.MultipartConfigElement;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
 import javax.servlet.http.Part;
 import java.io.*;
 import java.nio.file.Files;
@@ -42,12 +53,12 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static spark.Spark.*;
 
@@ -63,7 +74,48 @@ public class Server {
   private static final Gson GSON = new GsonBuilder().create();
   private static Server instance = null;
 
-  private static Model SHAPES_MODEL = DeerController.getShapes();
+  static {
+    MimeUtil.registerMimeDetector("eu.medsea.mimeutil.detector.MagicMimeMimeDetector");
+  }
+
+  private static final DeerMetrics.Counter jobsSubmitted =
+    DeerMetrics.counter("deer_jobs_submitted_total", "Jobs submitted to the DEER server.");
+
+  private static final DeerMetrics.Counter jobsFailed =
+    DeerMetrics.counter("deer_jobs_failed_total", "Jobs that completed exceptionally.");
+
+  private static final DeerMetrics.Counter jobsSucceeded =
+    DeerMetrics.counter("deer_jobs_succeeded_total", "Jobs that completed successfully.");
+
+  /**
+   * Factor between the size of uploaded files and the heap needed to hold them as models.
+   */
+  private static final long MEMORY_FACTOR = Long.getLong("deer.server.memoryFactor", 10);
+
+  /**
+   * Time after which finished jobs, their analytics, logs and working directories are evicted.
+   */
+  private static final long JOB_RETENTION_MINUTES = Long.getLong("deer.server.jobRetentionMinutes", 24 * 60);
+
+  /**
+   * Whether uploaded RDF files are parsed into models while they are being uploaded instead of
+   * being written to disk and read again by the job.
+   */
+  private static final boolean STREAM_UPLOADS = Boolean.getBoolean("deer.server.streamUploads");
+
+  private final JobScheduler scheduler = JobScheduler.fromSystemProperties();
+
+  private final ExecutorService uploadParsers = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "DeerUploadParser");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "DeerJobEvictor");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   private final ConcurrentMap<String, CompletableFuture<Void>> requests = new ConcurrentHashMap<>();
   private final File uploadDir = new File(STORAGE_DIR_PATH);
@@ -98,6 +150,7 @@ public class Server {
     get("/logs/:id", this::handleLogs);
     get("/results/:id", this::handleResults);
     get("/result/:id/:file", this::handleResult);
+    get("/metrics", this::handleMetrics);
     exception(Exception.class, (e, req, res) -> {
       logger.error("Error in processing request" + req.uri(), e);
       res.status(500);
@@ -113,62 +166,272 @@ public class Server {
   }
 
   private Server(){
-    new RequestHealthChecker(requests).start();
   }
 
   private Object handleSubmit(Request req, Response res) throws IOException, ServletException {
+    if (!scheduler.hasCapacity()) {
+      return tooManyRequests(res);
+    }
     String runId = FaradayCageContext.newRunId();
     File workingDir = new File(uploadDir.getAbsoluteFile(), runId);
     if (!workingDir.mkdirs()) {
       throw new IOException("Not able to create directory " + workingDir.getAbsolutePath());
     }
     req.attribute("org.eclipse.jetty.multipartConfig", new MultipartConfigElement(workingDir.getAbsolutePath()));
-    Path configFile = null;
-    if (req.contentType().contains("multipart/form-data")) {
-      for (Part part : req.raw().getParts()) {
-        try (InputStream is = part.getInputStream()) {
-          Path partFileName = Paths.get(part.getSubmittedFileName()).getFileName();
-          Path destinationPath = workingDir.toPath().resolve(partFileName);
-          Files.copy(is, destinationPath, StandardCopyOption.REPLACE_EXISTING);
-          if (part.getName().equals("config")) {
-            configFile = destinationPath;
+    if (!req.contentType().contains("multipart/form-data")) {
+      return GSON.toJson(new ErrorMessage(1, "Only Requests of type \"multipart/form-data\" are allowed"));
+    }
+    final long requestedReservation = STREAM_UPLOADS ? reserveUploadMemory(req) : 0;
+    long uploadReservation = requestedReservation;
+    boolean submitted = false;
+    try {
+      Path configFile = null;
+      CompletableFuture<CompiledExecutionGraph> compilation = null;
+      if (requestedReservation > 0) {
+        long parsedBytes = 0;
+        try {
+          MultipartReader reader = new MultipartReader(getRequestBody(req), req.contentType());
+          for (MultipartReader.Part part = reader.next(); part != null; part = reader.next()) {
+            if (part.getFileName() == null) {
+              continue;
+            }
+            Path partFileName = Paths.get(part.getFileName()).getFileName();
+            Path destinationPath = workingDir.toPath().resolve(partFileName);
+            Lang lang = RDFLanguages.filenameToLang(partFileName.toString());
+            if ("config".equals(part.getName()) || lang == null) {
+              Files.copy(part.getInputStream(), destinationPath, StandardCopyOption.REPLACE_EXISTING);
+              logger.info("Uploaded file '{}' to '{}'", partFileName, destinationPath);
+            } else {
+              parsedBytes += parseWhileUploading(part.getInputStream(), destinationPath, lang);
+              logger.info("Streamed file '{}' into a model for '{}'", partFileName, destinationPath);
+            }
+            if ("config".equals(part.getName()) && compilation == null) {
+              final String config = destinationPath.toString();
+              configFile = destinationPath;
+              // compile while the remaining parts are still being uploaded
+              compilation = CompletableFuture.supplyAsync(() -> DeerController.compileDeer(config, runId), uploadParsers);
+            }
+          }
+        } catch (IOException | RuntimeException e) {
+          PreloadedModels.releaseAll(workingDir.toPath());
+          throw e;
+        }
+        // shrink the reservation made from the Content-Length to the parsed models
+        uploadReservation = Math.min(requestedReservation, parsedBytes * MEMORY_FACTOR);
+        scheduler.release(requestedReservation - uploadReservation);
+      } else {
+        for (Part part : req.raw().getParts()) {
+          try (InputStream is = part.getInputStream()) {
+            Path partFileName = Paths.get(part.getSubmittedFileName()).getFileName();
+            Path destinationPath = workingDir.toPath().resolve(partFileName);
+            Files.copy(is, destinationPath, StandardCopyOption.REPLACE_EXISTING);
+            if (part.getName().equals("config")) {
+              configFile = destinationPath;
+            }
+            logger.info("Uploaded file '{}' to '{}'", partFileName, destinationPath);
           }
-          logger.info("Uploaded file '{}' to '{}'", partFileName, destinationPath);
         }
       }
-    } else {
-      return GSON.toJson(new ErrorMessage(1, "Only Requests of type \"multipart/form-data\" are allowed"));
+      if (Objects.isNull(configFile)) {
+        PreloadedModels.releaseAll(workingDir.toPath());
+        return GSON.toJson(new ErrorMessage(2, "No configuration was submitted"));
+      }
+      MDC.put("requestId", runId);
+      final CompiledExecutionGraph compiledExecutionGraph;
+      try {
+        compiledExecutionGraph = compilation == null
+          ? DeerController.compileDeer(configFile.toString(), runId)
+          : compilation.join();
+      } catch (RuntimeException e) {
+        PreloadedModels.releaseAll(workingDir.toPath());
+        MDC.remove("requestId");
+        throw e instanceof CompletionException && e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause() : e;
+      }
+      compiledExecutionGraph.andThen(() -> DeerController.writeAnalytics(workingDir.toPath().resolve("deer-analytics.json")));
+      // parsed models are covered by the upload reservation, which is held until the job has ended
+      final long memoryEstimate = estimateMemory(workingDir.toPath(), configFile);
+      final CompletableFuture<Void> job;
+      try {
+        job = scheduler.submit(runId, memoryEstimate, () -> {
+          MDC.put("requestId", runId);
+          compiledExecutionGraph.run();
+          compiledExecutionGraph.join();
+        });
+      } catch (RejectedExecutionException e) {
+        MDC.remove("requestId");
+        PreloadedModels.releaseAll(workingDir.toPath());
+        deleteDirectory(workingDir.toPath());
+        return tooManyRequests(res);
+      }
+      submitted = true;
+      final long heldReservation = uploadReservation;
+      jobsSubmitted.increment();
+      requests.put(runId, job.whenComplete((v, e) -> {
+        scheduler.release(heldReservation);
+        onCompletion(runId, workingDir.toPath(), e);
+      }));
+      logger.info("Queued request {} with an estimated memory footprint of {}MB", runId,
+        (memoryEstimate + heldReservation) / (1024 * 1024));
+      MDC.remove("requestId");
+      res.status(200);
+      return GSON.toJson(new SubmitMessage(runId));
+    } finally {
+      if (!submitted) {
+        scheduler.release(uploadReservation);
+      }
     }
-    if (Objects.isNull(configFile)) {
-      return GSON.toJson(new ErrorMessage(2, "No configuration was submitted"));
+  }
+
+  /**
+   * Reserves heap for the models parsed from a streamed upload, estimated from the
+   * {@code Content-Length} of the request before any part is read.
+   *
+   * @return the number of bytes reserved, or 0 if the length is unknown or the reservation does
+   * not fit into the memory budget, in which case the upload has to be written to disk
+   */
+  private long reserveUploadMemory(Request req) {
+    final long contentLength = req.raw().getContentLengthLong();
+    if (contentLength <= 0) {
+      return 0;
     }
-    MDC.put("requestId", runId);
-    CompiledExecutionGraph compiledExecutionGraph =
-      DeerController.compileDeer(configFile.toString(), runId);
-    compiledExecutionGraph.andThen(() -> DeerController.writeAnalytics(workingDir.toPath().resolve("deer-analytics.json")));
-    requests.put(runId, CompletableFuture.completedFuture(null).thenAcceptAsync($->{
-      MDC.put("requestId", runId);
-      compiledExecutionGraph.run();
-      compiledExecutionGraph.join();
-    }));
-    MDC.remove("requestId");
-    res.status(200);
-    return GSON.toJson(new SubmitMessage(runId));
+    final long reservation = contentLength * MEMORY_FACTOR;
+    if (!scheduler.reserve(reservation)) {
+      logger.info("Not enough memory to parse an upload of {}MB while uploading, writing it to disk instead",
+        contentLength / (1024 * 1024));
+      return 0;
+    }
+    return reservation;
+  }
+
+  /**
+   * Returns the body of the underlying servlet request, bypassing any wrapper that buffers it.
+   */
+  private static InputStream getRequestBody(Request req) throws IOException {
+    ServletRequest request = req.raw();
+    while (request instanceof ServletRequestWrapper) {
+      request = ((ServletRequestWrapper) request).getRequest();
+    }
+    return request.getInputStream();
+  }
+
+  /**
+   * Pipes an uploaded part into a parser running on a dedicated thread and registers the
+   * resulting model as the content of {@code file}, which itself is never written.
+   *
+   * @return the number of bytes uploaded
+   */
+  private long parseWhileUploading(InputStream part, Path file, Lang lang) throws IOException {
+    final PipedOutputStream pipe = new PipedOutputStream();
+    final PipedInputStream parserInput = new PipedInputStream(pipe, 1 << 20);
+    final String base = file.toAbsolutePath().toUri().toString();
+    PreloadedModels.register(file, CompletableFuture.supplyAsync(() -> {
+      try (InputStream in = parserInput) {
+        Model model = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(model, in, base, lang);
+        return model;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, uploadParsers));
+    final byte[] buffer = new byte[1 << 16];
+    boolean parserListening = true;
+    long total = 0;
+    int count;
+    while ((count = part.read(buffer)) >= 0) {
+      total += count;
+      if (parserListening) {
+        try {
+          pipe.write(buffer, 0, count);
+        } catch (IOException e) {
+          // the parser gave up, its failure surfaces once the job reads the model
+          parserListening = false;
+        }
+      }
+    }
+    try {
+      pipe.close();
+    } catch (IOException e) {
+      logger.debug("Parser of {} closed its input early", file, e);
+    }
+    return total;
   }
 
   private Object handleShapes(Request req, Response res) throws IOException {
     res.type("text/turtle");
     res.header("Content-Disposition", "attachment; filename=shapes.ttl");
     res.status(200);
-    SHAPES_MODEL.write(res.raw().getOutputStream(), "TTL");
+    DeerController.getShapes().write(res.raw().getOutputStream(), "TTL");
     return "";
   }
 
+  private void onCompletion(String runId, Path workingDir, Throwable e) {
+    PreloadedModels.releaseAll(workingDir);
+    RunResources.release(runId);
+    if (e == null) {
+      DeltaSnapshots.commit(runId);
+      jobsSucceeded.increment();
+    } else {
+      DeltaSnapshots.discard(runId);
+      jobsFailed.increment();
+      MDC.put("requestId", runId);
+      logger.error("Request " + runId + " completed with exception", e instanceof CompletionException ? e.getCause() : e);
+      MDC.remove("requestId");
+    }
+    evictor.schedule(() -> evict(runId, workingDir), JOB_RETENTION_MINUTES, TimeUnit.MINUTES);
+  }
+
+  private void evict(String runId, Path workingDir) {
+    requests.remove(runId);
+    DeerAnalyticsStore.remove(runId);
+    deleteDirectory(workingDir);
+    try {
+      Files.deleteIfExists(Paths.get(LOG_DIR_PATH + runId + ".log"));
+    } catch (IOException e) {
+      logger.warn("Could not delete log of request {}", runId, e);
+    }
+    logger.info("Evicted request {}", runId);
+  }
+
+  private static Object tooManyRequests(Response res) {
+    res.status(429);
+    res.header("Retry-After", "30");
+    return GSON.toJson(new ErrorMessage(3, "Too many requests, please retry later"));
+  }
+
+  /**
+   * Estimates the heap needed by a job from the size of its uploaded inputs.
+   */
+  private static long estimateMemory(Path workingDir, Path configFile) throws IOException {
+    try (Stream<Path> files = Files.list(workingDir)) {
+      return files.filter(Files::isRegularFile)
+        .filter(file -> !file.equals(configFile))
+        .mapToLong(file -> file.toFile().length())
+        .sum() * MEMORY_FACTOR;
+    }
+  }
+
+  private static void deleteDirectory(Path directory) {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+    } catch (IOException e) {
+      logger.warn("Could not delete {}", directory, e);
+    }
+  }
+
+  private Object handleMetrics(Request req, Response res) {
+    res.type("text/plain; version=0.0.4; charset=utf-8");
+    res.status(200);
+    return DeerMetrics.renderPrometheus();
+  }
+
   private Object handleStatus(Request req, Response res) {
     String id = sanitizeId(req.params("id"));
     StatusMessage result;
     if (!requests.containsKey(id)) {
       result = new StatusMessage(-1, "Request ID not found");
+    } else if (scheduler.isQueued(id)) {
+      result = new StatusMessage(3, "Request is queued");
     } else if (!requests.get(id).isDone()) {
       result = new StatusMessage(0, "Request is being processed");
     } else if (requests.get(id).isCompletedExceptionally()){
@@ -184,25 +447,10 @@ public class Server {
     String id = sanitizeId(req.params("id"));
     File requestedFile = new File(LOG_DIR_PATH + id + ".log");
     if (requestedFile.exists()) {
-      res.type("text/plain");
-      res.header("Content-Disposition", "attachment; filename=log.txt");
-      res.status(200);
-      OutputStream os = res.raw().getOutputStream();
-      FileInputStream fs = new FileInputStream(requestedFile);
-      final byte[] buffer = new byte[1024];
-      int count;
-      boolean finish = !requests.containsKey(id) || requests.get(id).isDone();
-      while (true) {
-        while ((count = fs.read(buffer)) >= 0) {
-          os.write(buffer, 0, count);
-        }
-        os.flush();
-        if (finish) break;
-        Thread.sleep(500);
-        finish = requests.get(id).isDone();
-      }
-      fs.close();
-      os.close();
+      FileTransfer.tailFile(req, res, requestedFile.toPath(), () -> {
+        CompletableFuture<Void> request = requests.get(id);
+        return request == null || request.isDone();
+      });
       return "";
     } else {
       res.status(404);
@@ -216,21 +464,8 @@ public class Server {
     File requestedFile = new File(STORAGE_DIR_PATH + id + "/" + file.getName());
     // is the file available?
     if (requestedFile.exists()) {
-      MimeUtil.registerMimeDetector("eu.medsea.mimeutil.detector.MagicMimeMimeDetector");
       Collection mimeTypes = MimeUtil.getMimeTypes(requestedFile, new MimeType("text/plain"));
-      res.type(mimeTypes.iterator().next().toString());
-      res.header("Content-Disposition", "attachment; filename=" + file.getName());
-      res.status(200);
-      OutputStream os = res.raw().getOutputStream();
-      FileInputStream fs = new FileInputStream(requestedFile);
-      final byte[] buffer = new byte[1024];
-      int count;
-      while ((count = fs.read(buffer)) >= 0) {
-        os.write(buffer, 0, count);
-      }
-      os.flush();
-      fs.close();
-      os.close();
+      FileTransfer.sendFile(req, res, requestedFile.toPath(), mimeTypes.iterator().next().toString(), file.getName());
       return "";
     } else {
       // 404 - Not Found
@@ -0,0 +1,101 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ *
+ */
+public class BatchRunnerTest {
+
+  @Test
+  public void testResolveDirectory() throws Exception {
+    Path dir = Files.createTempDirectory("deer-batch");
+    try {
+      Files.createFile(dir.resolve("b.ttl"));
+      Files.createFile(dir.resolve("a.ttl"));
+      Files.createFile(dir.resolve("notes.txt"));
+      assertEquals("It should resolve a directory to its configurations in order",
+        List.of(dir.resolve("a.ttl").toString(), dir.resolve("b.ttl").toString()),
+        BatchRunner.resolve(dir.toString()).collect(Collectors.toList()));
+    } finally {
+      deleteRecursively(dir);
+    }
+  }
+
+  @Test
+  public void testResolveManifest() throws Exception {
+    Path dir = Files.createTempDirectory("deer-batch");
+    try {
+      Path manifest = dir.resolve("nightly.lst");
+      Files.write(manifest, ("# nightly runs\n" +
+        "\n" +
+        "  first.ttl  \n" +
+        "sub/second.ttl\n" +
+        "https://example.org/third.ttl\n").getBytes(StandardCharsets.UTF_8));
+      Path base = dir.toAbsolutePath();
+      assertEquals("It should skip comments and blank lines and resolve paths against the manifest",
+        List.of(base.resolve("first.ttl").toString(), base.resolve("sub/second.ttl").toString(),
+          "https://example.org/third.ttl"),
+        BatchRunner.resolve(manifest.toString()).collect(Collectors.toList()));
+    } finally {
+      deleteRecursively(dir);
+    }
+  }
+
+  @Test
+  public void testResolveSingleConfiguration() {
+    assertEquals("It should pass other sources through",
+      List.of("https://example.org/config.ttl"),
+      BatchRunner.resolve("https://example.org/config.ttl").collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testAssignAnalyticsFiles() {
+    List<Path> files = BatchRunner.assignAnalyticsFiles(List.of(
+      "nightly/demo.ttl", "weekly/demo.ttl", "nightly/demo.ttl", "https://example.org/my config.ttl", "configs/"));
+    assertEquals("It should name analytics files after their configurations and number duplicates",
+      List.of("deer-analytics-demo.json", "deer-analytics-demo-2.json", "deer-analytics-demo-3.json",
+        "deer-analytics-my_config.json", "deer-analytics-configs.json"),
+      files.stream().map(Path::getFileName).map(Path::toString).collect(Collectors.toList()));
+    assertEquals("It should write analytics files to the working directory",
+      Paths.get("").toAbsolutePath(), files.get(0).getParent());
+  }
+
+  private static void deleteRecursively(Path dir) throws IOException {
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class ConfigurationCacheTest {
+
+  private static final String CONFIGURATION =
+    "@prefix : <urn:example:> .\n" +
+    "@prefix deer: <https://w3id.org/deer/> .\n" +
+    ":node a deer:FileModelReader ; deer:fromPath \"input.ttl\" .\n";
+
+  @Test
+  public void testReuseOfIdenticalContent() throws Exception {
+    ConfigurationCache cache = new ConfigurationCache(4);
+    Path first = Files.createTempFile("deer-config", ".ttl");
+    Path second = Files.createTempFile("deer-config", ".ttl");
+    try {
+      Files.write(first, CONFIGURATION.getBytes(StandardCharsets.UTF_8));
+      Files.write(second, CONFIGURATION.getBytes(StandardCharsets.UTF_8));
+      Model a = cache.get(first.toString());
+      Model b = cache.get(first.toString());
+      assertEquals("It should parse identical content only once", 1, cache.getMisses());
+      assertEquals("It should answer the second lookup from the cache", 1, cache.getHits());
+      assertTrue("It should yield equal configurations", a.isIsomorphicWith(b));
+      cache.get(second.toString());
+      assertEquals("It should parse identical content at another location again", 2, cache.getMisses());
+      Files.write(second, (CONFIGURATION + "<urn:example:other> a <urn:example:Type> .\n").getBytes(StandardCharsets.UTF_8));
+      cache.get(second.toString());
+      assertEquals("It should parse changed content again", 3, cache.getMisses());
+    } finally {
+      Files.deleteIfExists(first);
+      Files.deleteIfExists(second);
+    }
+  }
+
+  @Test
+  public void testResolutionAgainstLocation() throws Exception {
+    ConfigurationCache cache = new ConfigurationCache(4);
+    Path first = Files.createTempDirectory("deer-config").resolve("config.ttl");
+    Path second = Files.createTempDirectory("deer-config").resolve("config.ttl");
+    String relative = "<node> a <urn:example:Type> .\n";
+    try {
+      Files.write(first, relative.getBytes(StandardCharsets.UTF_8));
+      Files.write(second, relative.getBytes(StandardCharsets.UTF_8));
+      cache.get(first.toString());
+      Model resolved = cache.get(second.toString());
+      assertTrue("It should resolve relative IRIs against the location of the configuration",
+        resolved.containsResource(ResourceFactory.createResource(second.getParent().toUri().resolve("node").toString())));
+    } finally {
+      Files.deleteIfExists(first);
+      Files.deleteIfExists(second);
+      Files.deleteIfExists(first.getParent());
+      Files.deleteIfExists(second.getParent());
+    }
+  }
+
+  @Test
+  public void testIsolationOfLookups() throws Exception {
+    ConfigurationCache cache = new ConfigurationCache(4);
+    Path file = Files.createTempFile("deer-config", ".ttl");
+    try {
+      Files.write(file, CONFIGURATION.getBytes(StandardCharsets.UTF_8));
+      Model modified = cache.get(file.toString());
+      modified.add(ResourceFactory.createResource("urn:example:added"), RDF.type, RDF.Property);
+      Model fresh = cache.get(file.toString());
+      assertFalse("It should not leak modifications into later lookups",
+        fresh.containsResource(ResourceFactory.createResource("urn:example:added")));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer;
+
+import org.aksw.deer.io.ParsedInputCache;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class ParsedInputCacheTest {
+
+  private static final String INPUT =
+    "<urn:example:a> <urn:example:p> <urn:example:b> .\n";
+
+  private static final String OTHER_INPUT =
+    "<urn:example:c> <urn:example:p> <urn:example:d> .\n";
+
+  @After
+  public void tearDown() {
+    ParsedInputCache.clear();
+    ParsedInputCache.enable(0, Runtime.getRuntime().maxMemory() / 40);
+  }
+
+  @Test
+  public void testReuseOfUnchangedFiles() throws Exception {
+    ParsedInputCache.enable(4, Long.MAX_VALUE);
+    Path file = Files.createTempFile("deer-input", ".ttl");
+    try {
+      Files.write(file, INPUT.getBytes(StandardCharsets.UTF_8));
+      long misses = ParsedInputCache.getMisses();
+      long hits = ParsedInputCache.getHits();
+      Model first = ParsedInputCache.get(file.toString(), Lang.TTL).orElseThrow();
+      Model second = ParsedInputCache.get(file.toString(), Lang.TTL).orElseThrow();
+      assertEquals("It should parse an unchanged file only once", misses + 1, ParsedInputCache.getMisses());
+      assertEquals("It should answer the second lookup from the cache", hits + 1, ParsedInputCache.getHits());
+      assertTrue("It should yield equal models", first.isIsomorphicWith(second));
+      Files.write(file, (INPUT + OTHER_INPUT).getBytes(StandardCharsets.UTF_8));
+      Model changed = ParsedInputCache.get(file.toString(), Lang.TTL).orElseThrow();
+      assertEquals("It should parse a changed file again", misses + 2, ParsedInputCache.getMisses());
+      assertEquals("It should yield the changed content", 2, changed.size());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testIsolationOfLookups() throws Exception {
+    ParsedInputCache.enable(4, Long.MAX_VALUE);
+    Path file = Files.createTempFile("deer-input", ".ttl");
+    try {
+      Files.write(file, INPUT.getBytes(StandardCharsets.UTF_8));
+      Model modified = ParsedInputCache.get(file.toString(), Lang.TTL).orElseThrow();
+      modified.add(ResourceFactory.createResource("urn:example:added"), RDF.type, RDF.Property);
+      Model fresh = ParsedInputCache.get(file.toString(), Lang.TTL).orElseThrow();
+      assertFalse("It should not leak modifications into later lookups",
+        fresh.containsResource(ResourceFactory.createResource("urn:example:added")));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testByteBound() throws Exception {
+    Path first = Files.createTempFile("deer-input", ".ttl");
+    Path second = Files.createTempFile("deer-input", ".ttl");
+    try {
+      Files.write(first, INPUT.getBytes(StandardCharsets.UTF_8));
+      Files.write(second, OTHER_INPUT.getBytes(StandardCharsets.UTF_8));
+      // keep the modification time stable, so that only eviction causes misses
+      Files.setLastModifiedTime(first, FileTime.fromMillis(0));
+      long bound = Files.size(first) + Files.size(second) - 1;
+      ParsedInputCache.enable(4, bound);
+      ParsedInputCache.get(first.toString(), Lang.TTL);
+      ParsedInputCache.get(second.toString(), Lang.TTL);
+      assertTrue("It should not exceed the byte bound", ParsedInputCache.getCachedBytes() <= bound);
+      long misses = ParsedInputCache.getMisses();
+      ParsedInputCache.get(first.toString(), Lang.TTL);
+      assertEquals("It should evict the least recently used entry", misses + 1, ParsedInputCache.getMisses());
+    } finally {
+      Files.deleteIfExists(first);
+      Files.deleteIfExists(second);
+    }
+  }
+
+  @Test
+  public void testOversizedFile() throws Exception {
+    ParsedInputCache.enable(4, 8);
+    Path file = Files.createTempFile("deer-input", ".ttl");
+    try {
+      Files.write(file, INPUT.getBytes(StandardCharsets.UTF_8));
+      Model model = ParsedInputCache.get(file.toString(), Lang.TTL).orElseThrow();
+      assertEquals("It should still parse files exceeding the byte bound", 1, model.size());
+      assertEquals("It should not cache files exceeding the byte bound", 0, ParsedInputCache.getCachedBytes());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    Path file = Files.createTempFile("deer-input", ".ttl");
+    try {
+      Files.write(file, INPUT.getBytes(StandardCharsets.UTF_8));
+      assertFalse("It should not answer lookups while disabled",
+        ParsedInputCache.get(file.toString(), Lang.TTL).isPresent());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * DEER Command Line Interface - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.server;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class MultipartReaderTest {
+
+  private static final String CONTENT_TYPE = "multipart/form-data; boundary=XyZ";
+
+  @Test
+  public void testPartsAndPreamble() throws Exception {
+    String body = "preamble to be ignored\r\n" +
+      "--XyZ\r\n" +
+      "Content-Disposition: form-data; name=\"config\"; filename=\"config.ttl\"\r\n" +
+      "Content-Type: text/turtle\r\n" +
+      "\r\n" +
+      "<urn:a> <urn:b> <urn:c> .\r\n" +
+      "--XyZ\r\n" +
+      "Content-Disposition: form-data; name=\"comment\"\r\n" +
+      "\r\n" +
+      "no file\r\n" +
+      "--XyZ--\r\n" +
+      "epilogue to be ignored";
+    MultipartReader reader = reader(body.getBytes(StandardCharsets.ISO_8859_1), Integer.MAX_VALUE);
+    MultipartReader.Part config = reader.next();
+    assertEquals("It should read the name of a part", "config", config.getName());
+    assertEquals("It should read the file name of a part", "config.ttl", config.getFileName());
+    assertEquals("It should return the content without the line break before the delimiter",
+      "<urn:a> <urn:b> <urn:c> .", read(config.getInputStream()));
+    MultipartReader.Part comment = reader.next();
+    assertEquals("comment", comment.getName());
+    assertNull("It should not invent a file name", comment.getFileName());
+    assertEquals("no file", read(comment.getInputStream()));
+    assertNull("It should stop at the final delimiter", reader.next());
+    assertNull("It should stay exhausted", reader.next());
+  }
+
+  @Test
+  public void testBodyWithoutPreambleAndQuotedBoundary() throws Exception {
+    String body = "--a b\r\n" +
+      "Content-Disposition: form-data; name=\"x\"; filename=\"x.nt\"\r\n" +
+      "\r\n" +
+      "content\r\n" +
+      "--a b--\r\n";
+    MultipartReader reader = new MultipartReader(
+      new ByteArrayInputStream(body.getBytes(StandardCharsets.ISO_8859_1)), "multipart/form-data; boundary=\"a b\"");
+    assertEquals("content", read(reader.next().getInputStream()));
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void testDelimiterSplitAcrossReads() throws Exception {
+    byte[] content = new byte[200_000];
+    for (int i = 0; i < content.length; i++) {
+      // line breaks and dashes resembling the start of a delimiter
+      content[i] = (byte) "\r\n--Xy-".charAt(i % 7);
+    }
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.write(("--XyZ\r\nContent-Disposition: form-data; name=\"first\"; filename=\"big.nt\"\r\n\r\n")
+      .getBytes(StandardCharsets.ISO_8859_1));
+    body.write(content);
+    body.write(("\r\n--XyZ\r\nContent-Disposition: form-data; name=\"second\"\r\n\r\nsmall\r\n--XyZ--")
+      .getBytes(StandardCharsets.ISO_8859_1));
+    for (int chunkSize : new int[]{1, 3, 4, 5, 8191, 65536, 65539}) {
+      MultipartReader reader = reader(body.toByteArray(), chunkSize);
+      MultipartReader.Part first = reader.next();
+      assertTrue("It should return the content unchanged with reads of " + chunkSize + " bytes",
+        Arrays.equals(content, readBytes(first.getInputStream())));
+      MultipartReader.Part second = reader.next();
+      assertEquals("second", second.getName());
+      assertEquals("small", read(second.getInputStream()));
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void testUnreadPartIsSkipped() throws Exception {
+    String body = "--XyZ\r\n" +
+      "Content-Disposition: form-data; name=\"skipped\"\r\n" +
+      "\r\n" +
+      "never read\r\n" +
+      "--XyZ\r\n" +
+      "Content-Disposition: form-data; name=\"read\"\r\n" +
+      "\r\n" +
+      "read\r\n" +
+      "--XyZ--\r\n";
+    MultipartReader reader = reader(body.getBytes(StandardCharsets.ISO_8859_1), 2);
+    assertEquals("skipped", reader.next().getName());
+    MultipartReader.Part part = reader.next();
+    assertEquals("It should skip the rest of a part on the next request", "read", part.getName());
+    assertEquals("read", read(part.getInputStream()));
+  }
+
+  @Test
+  public void testMissingFinalDelimiter() throws Exception {
+    String body = "--XyZ\r\n" +
+      "Content-Disposition: form-data; name=\"truncated\"\r\n" +
+      "\r\n" +
+      "the upload was cut off";
+    MultipartReader reader = reader(body.getBytes(StandardCharsets.ISO_8859_1), 5);
+    MultipartReader.Part part = reader.next();
+    try {
+      read(part.getInputStream());
+      fail("It should reject a part that is not terminated by a delimiter");
+    } catch (IOException ignored) {
+    }
+  }
+
+  @Test
+  public void testMissingFinalDashes() throws Exception {
+    String body = "--XyZ\r\n" +
+      "Content-Disposition: form-data; name=\"x\"\r\n" +
+      "\r\n" +
+      "content\r\n" +
+      "--XyZ";
+    MultipartReader reader = reader(body.getBytes(StandardCharsets.ISO_8859_1), Integer.MAX_VALUE);
+    assertEquals("content", read(reader.next().getInputStream()));
+    try {
+      reader.next();
+      fail("It should reject a body that ends after a delimiter");
+    } catch (IOException ignored) {
+    }
+  }
+
+  @Test
+  public void testOversizedHeader() throws Exception {
+    char[] padding = new char[9000];
+    Arrays.fill(padding, 'a');
+    String body = "--XyZ\r\n" +
+      "Content-Disposition: form-data; name=\"" + new String(padding) + "\"\r\n" +
+      "\r\n" +
+      "content\r\n" +
+      "--XyZ--\r\n";
+    MultipartReader reader = reader(body.getBytes(StandardCharsets.ISO_8859_1), Integer.MAX_VALUE);
+    try {
+      reader.next();
+      fail("It should reject headers over 8 KB");
+    } catch (IOException ignored) {
+    }
+  }
+
+  @Test
+  public void testMissingBoundary() {
+    try {
+      new MultipartReader(new ByteArrayInputStream(new byte[0]), "multipart/form-data");
+      fail("It should reject a content type without boundary");
+    } catch (IllegalArgumentException ignored) {
+    }
+  }
+
+  private static MultipartReader reader(byte[] body, int chunkSize) {
+    return new MultipartReader(new ChunkedInputStream(body, chunkSize), CONTENT_TYPE);
+  }
+
+  private static String read(InputStream in) throws IOException {
+    return new String(readBytes(in), StandardCharsets.ISO_8859_1);
+  }
+
+  private static byte[] readBytes(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    in.transferTo(out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Returns at most {@code chunkSize} bytes per read, like a slow network connection.
+   */
+  private static class ChunkedInputStream extends ByteArrayInputStream {
+
+    private final int chunkSize;
+
+    private ChunkedInputStream(byte[] buf, int chunkSize) {
+      super(buf);
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) {
+      return super.read(b, off, Math.min(len, chunkSize));
+    }
+
+  }
+
+}
@@ -19,75 +19,161 @@ package org.aksw.deer;
 
 
 import org.apache.jena.rdf.model.Resource;
-import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- *
- *
- *
+ * Concurrent store of per job analytics.
+ * <p>
+ * Every job holds a global section and one section per execution node. A section contains
+ * plain JSON values, which are merged key by key on {@link #write}, as well as typed
+ * counters, gauges and timers, which are updated without locking.
+ * JSON is only rendered when {@link #getAnalyticsForJob} is called.
+ * <p>
+ * Jobs are evicted once they have not been updated for {@code deer.analytics.retentionMinutes}
+ * (default: 1440) minutes or, oldest first, once more than {@code deer.analytics.maxJobs}
+ * (default: 1000) jobs are stored.
  */
 public class DeerAnalyticsStore {
 
-  private static Map<String, JSONObject> backend = new HashMap<>();
+  private static final long RETENTION_MILLIS =
+    Long.getLong("deer.analytics.retentionMinutes", 24 * 60) * 60 * 1000;
+
+  private static final int MAX_JOBS = Integer.getInteger("deer.analytics.maxJobs", 1000);
+
+  private static final Map<String, JobAnalytics> backend = new ConcurrentHashMap<>();
 
-  public static synchronized void write(String jobId, Resource nodeId, JSONObject nodeJson) {
-    if (nodeId == null) {
-      writeGlobal(jobId, nodeJson);
-      return;
+  public static void write(String jobId, Resource nodeId, JSONObject nodeJson) {
+    Section section = section(jobId, nodeId);
+    for (String key : nodeJson.keySet()) {
+      section.values.put(key, nodeJson.get(key));
     }
-    String nodeName = nodeId.toString();
-    JSONObject jobJson = backend.get(jobId);
-    if (jobJson == null) {
-      jobJson = new JSONObject();
-      backend.put(jobId, jobJson);
+  }
+
+  /**
+   * Adds {@code delta} to the counter {@code name}.
+   */
+  public static void increment(String jobId, Resource nodeId, String name, long delta) {
+    section(jobId, nodeId).counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+  }
+
+  /**
+   * Sets the gauge {@code name} to {@code value}.
+   */
+  public static void gauge(String jobId, Resource nodeId, String name, double value) {
+    section(jobId, nodeId).gauges.computeIfAbsent(name, k -> new AtomicLong()).set(Double.doubleToRawLongBits(value));
+  }
+
+  /**
+   * Records a duration of {@code nanos} nanoseconds for the timer {@code name}.
+   */
+  public static void time(String jobId, Resource nodeId, String name, long nanos) {
+    section(jobId, nodeId).timers.computeIfAbsent(name, k -> new Timer()).record(nanos);
+  }
+
+  public static JSONObject getAnalyticsForJob(String jobId) {
+    JobAnalytics job = backend.get(jobId);
+    return job == null ? null : job.toJson();
+  }
+
+  /**
+   * Drops all analytics of {@code jobId}.
+   */
+  public static void remove(String jobId) {
+    backend.remove(jobId);
+  }
+
+  private static Section section(String jobId, Resource nodeId) {
+    JobAnalytics job = backend.get(jobId);
+    if (job == null) {
+      job = backend.computeIfAbsent(jobId, k -> new JobAnalytics());
+      evict();
     }
-    JSONObject insertJson = jobJson.optJSONObject("operatorStats");
-    if (insertJson == null) {
-      jobJson.put("operatorStats", new JSONObject());
-      insertJson = jobJson.getJSONObject("operatorStats");
+    job.lastUpdate = System.currentTimeMillis();
+    return nodeId == null ? job.global : job.nodes.computeIfAbsent(nodeId.toString(), k -> new Section());
+  }
+
+  private static void evict() {
+    final long now = System.currentTimeMillis();
+    backend.entrySet().removeIf(e -> now - e.getValue().lastUpdate > RETENTION_MILLIS);
+    while (backend.size() > MAX_JOBS) {
+      backend.entrySet().stream()
+        .min(Comparator.comparingLong(e -> e.getValue().lastUpdate))
+        .ifPresent(e -> backend.remove(e.getKey(), e.getValue()));
     }
-    JSONObject oldNodeJson = insertJson.optJSONObject(nodeName);
-    if (oldNodeJson == null) {
-      insertJson.put(nodeName, nodeJson);
-    } else {
-      insertJson.put(nodeName, mergeJSONObjects(oldNodeJson, nodeJson));
+  }
+
+  private static class JobAnalytics {
+
+    private final Section global = new Section();
+    private final Map<String, Section> nodes = new ConcurrentHashMap<>();
+    private volatile long lastUpdate = System.currentTimeMillis();
+
+    private JSONObject toJson() {
+      JSONObject json = new JSONObject();
+      if (!global.isEmpty()) {
+        json.put("globalStats", global.toJson());
+      }
+      if (!nodes.isEmpty()) {
+        JSONObject operatorStats = new JSONObject();
+        nodes.forEach((node, section) -> operatorStats.put(node, section.toJson()));
+        json.put("operatorStats", operatorStats);
+      }
+      return json;
     }
+
   }
 
-  private static void writeGlobal(String jobId, JSONObject json) {
-    JSONObject jobJson = backend.get(jobId);
-    if (jobJson == null) {
-      jobJson = new JSONObject();
-      backend.put(jobId, jobJson);
+  private static class Section {
+
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private boolean isEmpty() {
+      return values.isEmpty() && counters.isEmpty() && gauges.isEmpty() && timers.isEmpty();
     }
-    JSONObject oldJson = jobJson.optJSONObject("globalStats");
-    if (oldJson == null) {
-      jobJson.put("globalStats", json);
-    } else {
-      jobJson.put("globalStats", mergeJSONObjects(oldJson, json));
+
+    private JSONObject toJson() {
+      JSONObject json = new JSONObject();
+      values.forEach(json::put);
+      counters.forEach((name, counter) -> json.put(name, counter.sum()));
+      gauges.forEach((name, gauge) -> json.put(name, Double.longBitsToDouble(gauge.get())));
+      timers.forEach((name, timer) -> json.put(name, timer.toJson()));
+      return json;
     }
-  }
 
-  public static synchronized JSONObject getAnalyticsForJob(String jobId) {
-    return backend.get(jobId);
   }
 
-  private static JSONObject mergeJSONObjects(JSONObject json1, JSONObject json2) {
-    JSONObject mergedJSON;
-    try {
-      mergedJSON = new JSONObject(json1, JSONObject.getNames(json1));
-      for (String crunchifyKey : JSONObject.getNames(json2)) {
-        mergedJSON.put(crunchifyKey, json2.get(crunchifyKey));
-      }
+  private static class Timer {
 
-    } catch (JSONException e) {
-      throw new RuntimeException("JSON Exception" + e);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    private void record(long nanos) {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+    }
+
+    private JSONObject toJson() {
+      long n = count.sum();
+      double totalMs = totalNanos.sum() / 1_000_000d;
+      return new JSONObject()
+        .put("count", n)
+        .put("totalMs", totalMs)
+        .put("meanMs", n == 0 ? 0 : totalMs / n)
+        .put("maxMs", maxNanos.get() / 1_000_000d);
     }
-    return mergedJSON;
+
   }
 
 }
@@ -0,0 +1,241 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process wide registry of counters, gauges and histograms, rendered in the
+ * Prometheus text exposition format.
+ * <p>
+ * Unlike the {@link DeerAnalyticsStore}, which collects analytics per job, these metrics
+ * aggregate over the lifetime of the process and are meant to be scraped.
+ * Metrics are identified by name and label pairs, so repeated lookups return the same
+ * instance. Updates are lock-free.
+ */
+public final class DeerMetrics {
+
+  /**
+   * Default histogram buckets in seconds.
+   */
+  public static final double[] LATENCY_BUCKETS = {
+    0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300, 900, 3600
+  };
+
+  private static final Map<String, Family> families = new ConcurrentHashMap<>();
+
+  static {
+    final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    gauge("jvm_memory_heap_used_bytes", "Used JVM heap memory in bytes.",
+      () -> memoryMXBean.getHeapMemoryUsage().getUsed());
+    gauge("jvm_memory_heap_committed_bytes", "Committed JVM heap memory in bytes.",
+      () -> memoryMXBean.getHeapMemoryUsage().getCommitted());
+    gauge("jvm_memory_heap_max_bytes", "Maximum JVM heap memory in bytes, -1 if undefined.",
+      () -> memoryMXBean.getHeapMemoryUsage().getMax());
+  }
+
+  private DeerMetrics() {
+
+  }
+
+  /**
+   * Returns the counter with the given name and label pairs, e.g.
+   * {@code counter("deer_cache_requests_total", "...", "cache", "ner", "result", "hit")}.
+   */
+  public static Counter counter(String name, String help, String... labels) {
+    return (Counter) family(name, help, "counter").metrics
+      .computeIfAbsent(labelString(labels), k -> new Counter());
+  }
+
+  /**
+   * Registers a counter whose value is read from {@code supplier} at scrape time.
+   */
+  public static void counter(String name, String help, DoubleSupplier supplier, String... labels) {
+    family(name, help, "counter").metrics.put(labelString(labels), new Callback(supplier));
+  }
+
+  /**
+   * Registers a gauge whose value is read from {@code supplier} at scrape time.
+   */
+  public static void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+    family(name, help, "gauge").metrics.put(labelString(labels), new Callback(supplier));
+  }
+
+  /**
+   * Returns the histogram with the given name, label pairs and {@link #LATENCY_BUCKETS}.
+   */
+  public static Histogram histogram(String name, String help, String... labels) {
+    return (Histogram) family(name, help, "histogram").metrics
+      .computeIfAbsent(labelString(labels), k -> new Histogram(LATENCY_BUCKETS));
+  }
+
+  /**
+   * Renders all metrics in the Prometheus text exposition format, version 0.0.4.
+   */
+  public static String renderPrometheus() {
+    StringBuilder sb = new StringBuilder();
+    new TreeMap<>(families).forEach((name, family) -> {
+      sb.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+      sb.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+      new TreeMap<>(family.metrics).forEach((labels, metric) -> metric.render(sb, name, labels));
+    });
+    return sb.toString();
+  }
+
+  private static Family family(String name, String help, String type) {
+    Family family = families.computeIfAbsent(name, k -> new Family(help, type));
+    if (!family.type.equals(type)) {
+      throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type);
+    }
+    return family;
+  }
+
+  private static String labelString(String... labels) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be given as name/value pairs");
+    }
+    StringJoiner joiner = new StringJoiner(",");
+    for (int i = 0; i < labels.length; i += 2) {
+      joiner.add(labels[i] + "=\"" + escape(labels[i + 1]) + "\"");
+    }
+    return joiner.toString();
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static void sample(StringBuilder sb, String name, String labels, double value) {
+    sb.append(name);
+    if (!labels.isEmpty()) {
+      sb.append('{').append(labels).append('}');
+    }
+    sb.append(' ').append(format(value)).append('\n');
+  }
+
+  private static String format(double value) {
+    if (value == Double.POSITIVE_INFINITY) {
+      return "+Inf";
+    }
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  private static class Family {
+
+    private final String help;
+    private final String type;
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    private Family(String help, String type) {
+      this.help = help;
+      this.type = type;
+    }
+
+  }
+
+  private interface Metric {
+    void render(StringBuilder sb, String name, String labels);
+  }
+
+  private static class Callback implements Metric {
+
+    private final DoubleSupplier supplier;
+
+    private Callback(DoubleSupplier supplier) {
+      this.supplier = supplier;
+    }
+
+    @Override
+    public void render(StringBuilder sb, String name, String labels) {
+      sample(sb, name, labels, supplier.getAsDouble());
+    }
+
+  }
+
+  public static class Counter implements Metric {
+
+    private final LongAdder value = new LongAdder();
+
+    private Counter() {
+
+    }
+
+    public void increment() {
+      value.increment();
+    }
+
+    public void add(long delta) {
+      value.add(delta);
+    }
+
+    public long get() {
+      return value.sum();
+    }
+
+    @Override
+    public void render(StringBuilder sb, String name, String labels) {
+      sample(sb, name, labels, value.sum());
+    }
+
+  }
+
+  public static class Histogram implements Metric {
+
+    private final double[] buckets;
+    private final LongAdder[] counts;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    private Histogram(double[] buckets) {
+      this.buckets = buckets;
+      this.counts = new LongAdder[buckets.length + 1];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = new LongAdder();
+      }
+    }
+
+    public void observe(double value) {
+      int i = Arrays.binarySearch(buckets, value);
+      counts[i >= 0 ? i : -i - 1].increment();
+      sum.add(value);
+    }
+
+    @Override
+    public void render(StringBuilder sb, String name, String labels) {
+      String prefix = labels.isEmpty() ? "" : labels + ",";
+      long cumulative = 0;
+      for (int i = 0; i < counts.length; i++) {
+        cumulative += counts[i].sum();
+        double le = i < buckets.length ? buckets[i] : Double.POSITIVE_INFINITY;
+        sample(sb, name + "_bucket", prefix + "le=\"" + format(le) + "\"", cumulative);
+      }
+      sample(sb, name + "_sum", labels, sum.sum());
+      sample(sb, name + "_count", labels, cumulative);
+    }
+
+  }
+
+}
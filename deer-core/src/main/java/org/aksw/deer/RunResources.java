@@ -0,0 +1,95 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Resources that execution nodes hold on to beyond their own execution, e.g. on-disk stores
+ * backing their outputs, which are released once the run that created them has ended.
+ * <p>
+ * Whoever runs an execution graph calls {@link #release(String)} after the run has completed,
+ * successfully or not. Resources registered outside of a run, i.e. with a {@code null} run id,
+ * are released by {@code release(null)}.
+ */
+public final class RunResources {
+
+  private static final Logger logger = LoggerFactory.getLogger(RunResources.class);
+
+  private static final String NO_RUN = "";
+
+  private static final Map<String, Deque<AutoCloseable>> resources = new ConcurrentHashMap<>();
+
+  private RunResources() {
+
+  }
+
+  /**
+   * Registers {@code resource} to be closed when run {@code runId} ends. Resources are closed in
+   * reverse order of their registration.
+   */
+  public static void register(String runId, AutoCloseable resource) {
+    resources.compute(Objects.requireNonNullElse(runId, NO_RUN), (k, registered) -> {
+      final Deque<AutoCloseable> deque = registered == null ? new ArrayDeque<>() : registered;
+      deque.push(resource);
+      return deque;
+    });
+  }
+
+  /**
+   * Closes all resources registered for run {@code runId}.
+   */
+  public static void release(String runId) {
+    final Deque<AutoCloseable> released = resources.remove(Objects.requireNonNullElse(runId, NO_RUN));
+    if (released == null) {
+      return;
+    }
+    for (AutoCloseable resource : released) {
+      try {
+        resource.close();
+      } catch (Exception e) {
+        logger.warn("Could not release a resource of run {}", runId, e);
+      }
+    }
+  }
+
+  /**
+   * Returns a resource deleting {@code directory} and everything below it.
+   */
+  public static AutoCloseable deletion(Path directory) {
+    return () -> {
+      if (!Files.exists(directory)) {
+        return;
+      }
+      try (Stream<Path> files = Files.walk(directory)) {
+        files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+      } catch (IOException e) {
+        logger.warn("Could not delete {}", directory, e);
+      }
+    };
+  }
+
+}
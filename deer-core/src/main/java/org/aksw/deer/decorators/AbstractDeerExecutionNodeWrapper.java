@@ -19,10 +19,20 @@ package org.aksw.deer.decorators;
 
 import org.aksw.deer.DeerExecutionNode;
 import org.aksw.deer.DeerExecutionNodeWrapper;
+import org.aksw.deer.util.ExecutionGraphTopology;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.decorator.AbstractExecutionNodeWrapper;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  *
@@ -33,4 +43,45 @@ public abstract class AbstractDeerExecutionNodeWrapper extends AbstractExecution
   public Resource getType() {
     return DEER.resource(this.getClass().getSimpleName());
   }
+
+  /**
+   * Declares {@code wrapper}, an instance of {@code wrapperClass}, as decorator of every execution node
+   * in {@code configuration} whose types do not end with any of {@code excludedTypeSuffixes}.
+   * Execution nodes are the resources connected through {@code fcage:hasInput} or
+   * {@code fcage:hasOutput}, see {@link ExecutionGraphTopology#getNodes(Model)}.
+   * Wrappers, i.e. objects of {@code fcage:decoratedBy}, are never decorated.
+   *
+   * @return the number of decorated nodes
+   */
+  protected static int decorateNodes(Model configuration, Resource wrapper,
+                                     Class<? extends DeerExecutionNodeWrapper> wrapperClass,
+                                     String... excludedTypeSuffixes) {
+    return decorateNodes(configuration, wrapper, wrapperClass, node -> true, excludedTypeSuffixes);
+  }
+
+  /**
+   * Like {@link #decorateNodes(Model, Resource, Class, String...)}, but only decorates nodes
+   * matching {@code filter}.
+   */
+  protected static int decorateNodes(Model configuration, Resource wrapper,
+                                     Class<? extends DeerExecutionNodeWrapper> wrapperClass,
+                                     Predicate<Resource> filter, String... excludedTypeSuffixes) {
+    final Set<RDFNode> wrappers = configuration.listObjectsOfProperty(ExecutionGraphTopology.DECORATED_BY).toSet();
+    final List<Resource> nodes = ExecutionGraphTopology.getNodes(configuration).stream()
+      .filter(Resource::isURIResource)
+      .filter(r -> r.hasProperty(RDF.type))
+      .filter(r -> !wrappers.contains(r) && !r.equals(wrapper))
+      .filter(filter)
+      .filter(r -> r.listProperties(RDF.type).toList().stream()
+        .map(Statement::getObject)
+        .filter(RDFNode::isURIResource)
+        .map(t -> t.asResource().getURI())
+        .noneMatch(t -> Arrays.stream(excludedTypeSuffixes).anyMatch(t::endsWith)))
+      .collect(Collectors.toList());
+    if (!nodes.isEmpty()) {
+      configuration.add(wrapper, RDF.type, DEER.resource(wrapperClass.getSimpleName()));
+      nodes.forEach(node -> configuration.add(node, ExecutionGraphTopology.DECORATED_BY, wrapper));
+    }
+    return nodes.size();
+  }
 }
@@ -0,0 +1,219 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.decorators;
+
+import org.aksw.deer.DeerAnalyticsStore;
+import org.aksw.deer.DeerExecutionNode;
+import org.aksw.deer.DeerMetrics;
+import org.aksw.deer.ParameterizedDeerExecutionNode;
+import org.aksw.deer.util.ExecutionGraphTopology;
+import org.aksw.deer.util.TripleStreams;
+import org.aksw.deer.vocabulary.DEER;
+import org.aksw.faraday_cage.engine.ExecutionNode;
+import org.aksw.faraday_cage.engine.FaradayCageContext;
+import org.aksw.faraday_cage.engine.Parameterized;
+import org.apache.jena.mem.GraphMem;
+import org.apache.jena.rdf.model.*;
+import org.pf4j.Extension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Records wall time, CPU time, allocated bytes, input and output triple counts and throughput
+ * of the decorated execution node in the {@link DeerAnalyticsStore}.
+ * <p>
+ * Use {@link #decorateAll(Model)} to decorate every execution node of a configuration.
+ * CPU time and allocated bytes are measured for the executing thread only and are omitted
+ * if the JVM does not support measuring them. Triples of pending or streamed outputs, e.g. of
+ * fused operators, are not counted, their work is accounted to the node consuming them.
+ * Triple counts and throughput are only recorded if all models are in-memory graphs, whose size is
+ * known without a scan, unless {@link #COUNT_ALL_TRIPLES_PROPERTY} is set.
+ */
+@Extension
+public class InstrumentationWrapper extends AbstractDeerExecutionNodeWrapper {
+
+  private static final Logger logger = LoggerFactory.getLogger(InstrumentationWrapper.class);
+
+  public static final Property DECORATED_BY = ExecutionGraphTopology.DECORATED_BY;
+
+  public static final Resource DEFAULT_INSTRUMENTATION = DEER.resource("defaultInstrumentation");
+
+  /**
+   * Set the system property {@code deer.instrumentation} to {@code false} to disable
+   * automatic instrumentation.
+   */
+  public static final String ENABLED_PROPERTY = "deer.instrumentation";
+
+  /**
+   * Set the system property {@code deer.instrumentation.countAllTriples} to {@code true} to also
+   * count the triples of models whose size may require a full scan, e.g. deduplicating union views.
+   */
+  public static final String COUNT_ALL_TRIPLES_PROPERTY = "deer.instrumentation.countAllTriples";
+
+  private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+  /**
+   * Decorates every execution node of {@code configuration} with an {@code InstrumentationWrapper},
+   * unless disabled through {@link #ENABLED_PROPERTY}.
+   *
+   * @return {@code configuration}
+   */
+  public static Model decorateAll(Model configuration) {
+    if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+      return configuration;
+    }
+    final int nodes = decorateNodes(configuration, DEFAULT_INSTRUMENTATION, InstrumentationWrapper.class, "Wrapper");
+    if (nodes > 0) {
+      logger.info("Instrumenting {} execution nodes.", nodes);
+    }
+    return configuration;
+  }
+
+  @Override
+  public DeerExecutionNode wrap(DeerExecutionNode executionNode) {
+    if (executionNode instanceof Parameterized) {
+      return new ParameterizedInstrumentationDecorator((ParameterizedDeerExecutionNode) executionNode);
+    } else {
+      return new InstrumentationDecorator(executionNode);
+    }
+  }
+
+  @Override
+  public String getDocumentationURL() {
+    return "";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Records timing, memory and triple count statistics of execution nodes.";
+  }
+
+  private static List<Model> instrumented(ExecutionNode<Model> node, List<Model> in, Function<List<Model>, List<Model>> apply) {
+    final Resource id = node.getId();
+    final long inputTriples = countTriples(in);
+    final long cpuStart = currentThreadCpuTime();
+    final long allocatedStart = currentThreadAllocatedBytes();
+    final long wallStart = System.nanoTime();
+    final List<Model> out = apply.apply(in);
+    final long wallTime = System.nanoTime() - wallStart;
+    final long cpuEnd = currentThreadCpuTime();
+    final long allocatedEnd = currentThreadAllocatedBytes();
+    final long outputTriples = countTriples(out);
+    final String runId = FaradayCageContext.getRunId();
+    DeerAnalyticsStore.time(runId, id, "wallTime", wallTime);
+    if (cpuStart >= 0 && cpuEnd >= 0) {
+      DeerAnalyticsStore.time(runId, id, "cpuTime", cpuEnd - cpuStart);
+    }
+    if (allocatedStart >= 0 && allocatedEnd >= 0) {
+      DeerAnalyticsStore.increment(runId, id, "allocatedBytes", allocatedEnd - allocatedStart);
+    }
+    final String operator = node.getType() == null ? "unknown" : node.getType().getLocalName();
+    DeerMetrics.histogram("deer_node_execution_seconds", "Wall time of DEER execution nodes.",
+      "operator", operator).observe(wallTime / 1e9);
+    if (inputTriples >= 0) {
+      DeerAnalyticsStore.increment(runId, id, "inputTriples", inputTriples);
+      DeerMetrics.counter("deer_node_input_triples_total", "Triples consumed by DEER execution nodes.",
+        "operator", operator).add(inputTriples);
+    }
+    if (outputTriples >= 0) {
+      DeerAnalyticsStore.increment(runId, id, "outputTriples", outputTriples);
+      DeerMetrics.counter("deer_node_output_triples_total", "Triples produced by DEER execution nodes.",
+        "operator", operator).add(outputTriples);
+    }
+    if (inputTriples >= 0 || outputTriples >= 0) {
+      DeerAnalyticsStore.gauge(runId, id, "throughputTriplesPerSecond",
+        wallTime == 0 ? 0 : Math.max(inputTriples, outputTriples) * 1e9 / wallTime);
+    }
+    logger.debug("Instrumented {} in {}ms", id, wallTime / 1_000_000);
+    return out;
+  }
+
+  /**
+   * @return the number of triples in {@code models} or -1 if counting them would be expensive
+   */
+  private static long countTriples(List<Model> models) {
+    if (models == null) {
+      return 0;
+    }
+    final boolean countAll = Boolean.getBoolean(COUNT_ALL_TRIPLES_PROPERTY);
+    long count = 0;
+    for (Model model : models) {
+      // counting pending streams would buffer them, streamed ones can not be counted anymore
+      if (model == null || !TripleStreams.isMaterialized(model)) {
+        continue;
+      }
+      if (!countAll && !(model.getGraph() instanceof GraphMem)) {
+        return -1;
+      }
+      count += model.size();
+    }
+    return count;
+  }
+
+  private static long currentThreadCpuTime() {
+    try {
+      return threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()
+        ? threadMXBean.getCurrentThreadCpuTime() : -1;
+    } catch (UnsupportedOperationException e) {
+      return -1;
+    }
+  }
+
+  private static long currentThreadAllocatedBytes() {
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+      try {
+        return bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()
+          ? bean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+      } catch (UnsupportedOperationException e) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private class InstrumentationDecorator extends AbstractDeerExecutionNodeDecorator {
+
+    public InstrumentationDecorator(ExecutionNode<Model> other) {
+      super(other);
+    }
+
+    public List<Model> apply(List<Model> in) {
+      return instrumented(getWrapped(), in, super::apply);
+    }
+
+  }
+
+  private class ParameterizedInstrumentationDecorator extends AbstractParameterizedDeerExecutionNodeDecorator {
+
+    public ParameterizedInstrumentationDecorator(ParameterizedDeerExecutionNode other) {
+      super(other);
+    }
+
+    public List<Model> apply(List<Model> in) {
+      return instrumented(getWrapped(), in, super::apply);
+    }
+
+  }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.decorators;
+
+import org.aksw.deer.DeerAnalyticsStore;
+import org.aksw.deer.DeerExecutionNode;
+import org.aksw.deer.DeerMetrics;
+import org.aksw.deer.ParameterizedDeerExecutionNode;
+import org.aksw.deer.enrichments.LinkingEnrichmentOperator;
+import org.aksw.deer.enrichments.MergeEnrichmentOperator;
+import org.aksw.deer.util.DiskModelCache;
+import org.aksw.deer.util.LazyUnionGraph;
+import org.aksw.deer.util.ModelFingerprint;
+import org.aksw.deer.util.TripleStreams;
+import org.aksw.deer.vocabulary.DEER;
+import org.aksw.faraday_cage.engine.ExecutionNode;
+import org.aksw.faraday_cage.engine.FaradayCageContext;
+import org.aksw.faraday_cage.engine.Parameterized;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.pf4j.Extension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.SoftReference;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Memoizes the outputs of the decorated execution node, keyed by the node's type, its
+ * description in the configuration graph and the fingerprints of its input models.
+ * <p>
+ * If a node is executed again with unchanged parameters and inputs, e.g. when re-running a
+ * pipeline in watch mode, its memoized output is returned instead of being recomputed.
+ * Outputs are kept in a bounded {@link DiskModelCache}, so that they survive across runs of DEER,
+ * and are only softly referenced in memory. Outputs are handed out as copy-on-write views, so
+ * downstream nodes can never modify memoized models. Nodes without inputs are never memoized,
+ * since their output depends on external state only. Neither are nodes reading or writing files
+ * given by their parameters, since the contents of these files are not part of the key and a
+ * memoized output would skip writing them, nor pending outputs, see {@link TripleStreams}.
+ * <p>
+ * Use {@link #decorateAll(Model)} to decorate every enrichment operator of a configuration.
+ */
+@Extension
+public class MemoizationWrapper extends AbstractDeerExecutionNodeWrapper {
+
+  private static final Logger logger = LoggerFactory.getLogger(MemoizationWrapper.class);
+
+  public static final Resource DEFAULT_MEMOIZATION = DEER.resource("defaultMemoization");
+
+  /**
+   * Set the system property {@code deer.memoization} to {@code true} to enable automatic memoization.
+   */
+  public static final String ENABLED_PROPERTY = "deer.memoization";
+
+  private static final int DEFAULT_CAPACITY = 64;
+
+  private static final Set<Property> FILE_PARAMETERS = Set.of(
+    LinkingEnrichmentOperator.SPEC_FILE, LinkingEnrichmentOperator.LINKS_FILE, MergeEnrichmentOperator.MERGED_FILE
+  );
+
+  private static final DeerMetrics.Counter hits = DeerMetrics.counter("deer_cache_requests_total",
+    "Lookups in the caches of DEER nodes.", "cache", "memoization", "result", "hit");
+
+  private static final DeerMetrics.Counter misses = DeerMetrics.counter("deer_cache_requests_total",
+    "Lookups in the caches of DEER nodes.", "cache", "memoization", "result", "miss");
+
+  private static final long DEFAULT_MAX_DISK_BYTES = 1L << 30;
+
+  private static final DiskModelCache disk = new DiskModelCache(
+    Paths.get(System.getProperty("deer.memoization.directory",
+      Paths.get(System.getProperty("java.io.tmpdir"), "deer-memoization").toString())),
+    Long.getLong("deer.memoization.maxDiskBytes", DEFAULT_MAX_DISK_BYTES));
+
+  // outputs may be views keeping whole input models alive, so the heap only holds on to them softly
+  private static final Map<String, SoftReference<List<Model>>> memo = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, SoftReference<List<Model>>> eldest) {
+      return size() > Integer.getInteger("deer.memoization.capacity", DEFAULT_CAPACITY);
+    }
+  };
+
+  /**
+   * Decorates every enrichment operator of {@code configuration} with a {@code MemoizationWrapper},
+   * if enabled through {@link #ENABLED_PROPERTY}. Readers, writers, wrappers and nodes with file
+   * parameters are left alone.
+   *
+   * @return {@code configuration}
+   */
+  public static Model decorateAll(Model configuration) {
+    if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+      return configuration;
+    }
+    final int nodes = decorateNodes(configuration, DEFAULT_MEMOIZATION, MemoizationWrapper.class,
+      node -> !hasFileParameters(node), "Wrapper", "Reader", "Writer");
+    if (nodes > 0) {
+      logger.info("Memoizing {} execution nodes.", nodes);
+    }
+    return configuration;
+  }
+
+  public static void clear() {
+    synchronized (memo) {
+      memo.clear();
+    }
+  }
+
+  @Override
+  public DeerExecutionNode wrap(DeerExecutionNode executionNode) {
+    if (executionNode instanceof Parameterized) {
+      return new ParameterizedMemoizationDecorator((ParameterizedDeerExecutionNode) executionNode);
+    } else {
+      return new MemoizationDecorator(executionNode);
+    }
+  }
+
+  @Override
+  public String getDocumentationURL() {
+    return "";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Reuses outputs of execution nodes whose parameters and inputs did not change.";
+  }
+
+  private static boolean hasFileParameters(Resource node) {
+    return node != null && node.getModel() != null && FILE_PARAMETERS.stream().anyMatch(node::hasProperty);
+  }
+
+  private static List<Model> memoized(ExecutionNode<Model> node, List<Model> in, Function<List<Model>, List<Model>> apply) {
+    if (in == null || in.isEmpty() || hasFileParameters(node.getId())) {
+      return apply.apply(in);
+    }
+    final Resource id = node.getId();
+    final String key = fingerprint(node, in);
+    List<Model> out;
+    synchronized (memo) {
+      final SoftReference<List<Model>> reference = memo.get(key);
+      out = reference == null ? null : reference.get();
+    }
+    if (out == null) {
+      out = disk.get(key).orElse(null);
+      if (out != null) {
+        synchronized (memo) {
+          memo.put(key, new SoftReference<>(out));
+        }
+      }
+    }
+    if (out != null) {
+      hits.increment();
+      DeerAnalyticsStore.increment(FaradayCageContext.getRunId(), id, "memoizationHits", 1);
+      logger.info("Reusing memoized output of {}", id);
+    } else {
+      misses.increment();
+      out = apply.apply(in);
+      if (out.stream().anyMatch(TripleStreams::isPending)) {
+        // storing pending outputs would evaluate them here instead of streaming them downstream
+        logger.debug("Not memoizing the pending output of {}", id);
+        return out;
+      }
+      synchronized (memo) {
+        memo.put(key, new SoftReference<>(out));
+      }
+      disk.put(key, out);
+    }
+    return out.stream()
+      .map(model -> model == null ? null : LazyUnionGraph.union(List.of(model), false))
+      .collect(Collectors.toList());
+  }
+
+  private static String fingerprint(ExecutionNode<Model> node, List<Model> in) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(node.getType()).append('\n');
+    if (node.getId() != null && node.getId().getModel() != null) {
+      sb.append(ModelFingerprint.describe(node.getId()));
+    } else {
+      sb.append(node.getId());
+    }
+    for (Model model : in) {
+      sb.append('\n').append(model == null ? "null" : ModelFingerprint.of(model));
+    }
+    return ModelFingerprint.sha256(sb.toString());
+  }
+
+  private class MemoizationDecorator extends AbstractDeerExecutionNodeDecorator {
+
+    public MemoizationDecorator(ExecutionNode<Model> other) {
+      super(other);
+    }
+
+    public List<Model> apply(List<Model> in) {
+      return memoized(getWrapped(), in, super::apply);
+    }
+
+  }
+
+  private class ParameterizedMemoizationDecorator extends AbstractParameterizedDeerExecutionNodeDecorator {
+
+    public ParameterizedMemoizationDecorator(ParameterizedDeerExecutionNode other) {
+      super(other);
+    }
+
+    public List<Model> apply(List<Model> in) {
+      return memoized(getWrapped(), in, super::apply);
+    }
+
+  }
+
+}
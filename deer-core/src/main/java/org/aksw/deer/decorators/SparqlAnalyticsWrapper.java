@@ -20,21 +20,33 @@ package org.aksw.deer.decorators;
 import org.aksw.deer.DeerAnalyticsStore;
 import org.aksw.deer.DeerExecutionNode;
 import org.aksw.deer.ParameterizedDeerExecutionNode;
+import org.aksw.deer.util.HyperLogLog;
+import org.aksw.deer.util.LazyUnionGraph;
+import org.aksw.deer.util.SparqlQueryCache;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ExecutionNode;
 import org.aksw.faraday_cage.engine.FaradayCageContext;
 import org.aksw.faraday_cage.engine.Parameterized;
 import org.aksw.faraday_cage.engine.ValidatableParameterMap;
+import org.apache.jena.graph.Factory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.*;
-import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.Property;
-import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.json.JSONObject;
 import org.pf4j.Extension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  *
@@ -48,38 +60,212 @@ public class SparqlAnalyticsWrapper extends AbstractParameterizedDeerExecutionNo
 
   public static final Property JSON_OUTPUT = DEER.property("jsonOutput");
 
+  public static final Property ASYNC = DEER.property("async");
+
+  public static final Property SAMPLE_SIZE = DEER.property("sampleSize");
+
+  public static final Property SAMPLE_PERCENTAGE = DEER.property("samplePercentage");
+
+  public static final Property APPROXIMATE_STATISTICS = DEER.property("approximateStatistics");
+
+  private static final ExecutorService executor = Executors.newFixedThreadPool(
+    Math.max(1, Runtime.getRuntime().availableProcessors() / 2), r -> {
+      Thread thread = new Thread(r, "SparqlAnalyticsWrapper");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  private static final Map<String, Set<CompletableFuture<Void>>> pending = new ConcurrentHashMap<>();
+
+  private volatile CompiledTemplate template = null;
+
   @Override
   public ValidatableParameterMap createParameterMap() {
     return ValidatableParameterMap.builder()
       .declareProperty(SPARQL_SELECT_QUERY)
       .declareProperty(JSON_OUTPUT)
+      .declareProperty(ASYNC)
+      .declareProperty(SAMPLE_SIZE)
+      .declareProperty(SAMPLE_PERCENTAGE)
+      .declareProperty(APPROXIMATE_STATISTICS)
       .build();
   }
 
-  private void applyTriggered(Resource id, List<Model> in, List<Model> out) {
-    Dataset dataset = DatasetFactory.createGeneral();
+  private void applyTriggered(String runId, Resource id, List<Model> in, List<Model> out) {
+    final Map<String, Model> graphs = new LinkedHashMap<>();
     for (int i = 0; i < in.size(); i++) {
-      dataset.addNamedModel(DEER.resource("inputGraph" + i).getURI(), in.get(i));
+      graphs.put("inputGraph" + i, in.get(i));
     }
     for (int i = 0; i < out.size(); i++) {
-      dataset.addNamedModel(DEER.resource("outputGraph" + i).getURI(), out.get(i));
-    }
-    final String query = getParameterMap().get(SPARQL_SELECT_QUERY).asLiteral().getString();
-    final String[] jsonOutput = { getParameterMap().get(JSON_OUTPUT).asLiteral().getString() };
-    QueryExecution queryExecution = QueryExecutionFactory.create(query, dataset);
-    ResultSet resultSet = queryExecution.execSelect();
-    List<String> resultVars = resultSet.getResultVars();
-    resultSet.forEachRemaining(qs ->
-      resultVars.stream()
-        .filter(qs::contains)
-        .forEach(varName ->
-          jsonOutput[0] = jsonOutput[0].replace("?" + varName, "\"" + qs.get(varName).toString() + "\"")
-        )
-    );
-    DeerAnalyticsStore.write(FaradayCageContext.getRunId(), id, new JSONObject(jsonOutput[0]));
+      graphs.put("outputGraph" + i, out.get(i));
+    }
+    final Optional<String> query = getParameterMap().getOptional(SPARQL_SELECT_QUERY)
+      .map(RDFNode::asLiteral).map(Literal::getString);
+    // parameter approximateStatistics is optional, defaults to false
+    final boolean approximate = getParameterMap().getOptional(APPROXIMATE_STATISTICS)
+      .map(RDFNode::asLiteral).map(Literal::getBoolean).orElse(false);
+    final Supplier<Sampler> sampler = getSampler();
+    final Dataset dataset = DatasetFactory.createGeneral();
+    final JSONObject sampling = new JSONObject();
+    final JSONObject statistics = new JSONObject();
+    for (Map.Entry<String, Model> graph : graphs.entrySet()) {
+      Model model = graph.getValue();
+      if (sampler != null || approximate) {
+        // a single pass over the graph feeds both the sample and the estimators
+        Sampler sample = query.isPresent() && sampler != null ? sampler.get() : null;
+        HyperLogLog subjects = approximate ? new HyperLogLog() : null;
+        HyperLogLog predicates = approximate ? new HyperLogLog() : null;
+        long size = 0;
+        ExtendedIterator<Triple> it = model.getGraph().find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+          while (it.hasNext()) {
+            Triple t = it.next();
+            size++;
+            if (sample != null) {
+              sample.offer(t);
+            }
+            if (approximate) {
+              subjects.add(t.getSubject().toString());
+              predicates.add(t.getPredicate().toString());
+            }
+          }
+        } finally {
+          it.close();
+        }
+        if (sample != null) {
+          Model sampled = ModelFactory.createModelForGraph(sample.getSample());
+          sampled.setNsPrefixes(model.getNsPrefixMap());
+          sampling.put(graph.getKey(), new JSONObject().put("triples", size).put("sampledTriples", sampled.size()));
+          model = sampled;
+        }
+        if (approximate) {
+          statistics.put(graph.getKey(), new JSONObject()
+            .put("triples", size)
+            .put("distinctSubjects", subjects.estimate())
+            .put("distinctPredicates", predicates.estimate()));
+        }
+      }
+      dataset.addNamedModel(DEER.resource(graph.getKey()).getURI(), model);
+    }
+    if (query.isPresent()) {
+      final CompiledTemplate template = getTemplate();
+      final SparqlQueryCache queryCache = SparqlQueryCache.getInstance();
+      final Map<String, String> bindings = new HashMap<>();
+      try (QueryExecution queryExecution = QueryExecutionFactory.create(queryCache.getQuery(query.get()), dataset)) {
+        ResultSet resultSet = queryExecution.execSelect();
+        // every placeholder is bound to its first value, so stop as soon as all of them are bound
+        while (resultSet.hasNext() && bindings.size() < template.getVariables().size()) {
+          QuerySolution qs = resultSet.next();
+          for (String varName : template.getVariables()) {
+            if (!bindings.containsKey(varName) && qs.contains(varName)) {
+              bindings.put(varName, qs.get(varName).toString());
+            }
+          }
+        }
+      }
+      DeerAnalyticsStore.write(runId, id, new JSONObject(template.render(bindings)));
+    }
+    if (sampling.length() > 0) {
+      DeerAnalyticsStore.write(runId, id, new JSONObject().put("sampling", sampling));
+    }
+    if (statistics.length() > 0) {
+      DeerAnalyticsStore.write(runId, id, new JSONObject().put("approximateStatistics", statistics));
+    }
     logger.info("AnalyticsWrapper {} keeping notes", getId());
   }
 
+  /**
+   * @return a factory for fresh samplers or {@code null} if sampling is disabled
+   */
+  private Supplier<Sampler> getSampler() {
+    final Optional<Integer> sampleSize = getParameterMap().getOptional(SAMPLE_SIZE)
+      .map(RDFNode::asLiteral).map(Literal::getInt);
+    final Optional<Double> samplePercentage = getParameterMap().getOptional(SAMPLE_PERCENTAGE)
+      .map(RDFNode::asLiteral).map(Literal::getDouble);
+    if (sampleSize.isPresent() && samplePercentage.isPresent()) {
+      throw new IllegalStateException("SparqlAnalyticsWrapper " + getId() + " must not declare both "
+        + SAMPLE_SIZE + " and " + SAMPLE_PERCENTAGE);
+    }
+    if (sampleSize.isPresent()) {
+      if (sampleSize.get() < 1) {
+        throw new IllegalArgumentException("Sample size of " + getId() + " must be positive");
+      }
+      return () -> new ReservoirSampler(sampleSize.get());
+    }
+    if (samplePercentage.isPresent()) {
+      if (samplePercentage.get() <= 0 || samplePercentage.get() > 100) {
+        throw new IllegalArgumentException("Sample percentage of " + getId() + " must be in (0, 100]");
+      }
+      return () -> new BernoulliSampler(samplePercentage.get() / 100);
+    }
+    return null;
+  }
+
+  private CompiledTemplate getTemplate() {
+    // parameter jsonOutput is optional, defaults to an empty object
+    final String jsonOutput = getParameterMap().getOptional(JSON_OUTPUT)
+      .map(RDFNode::asLiteral).map(Literal::getString).orElse("{}");
+    CompiledTemplate t = template;
+    if (t == null || !t.getSource().equals(jsonOutput)) {
+      t = new CompiledTemplate(jsonOutput);
+      template = t;
+    }
+    return t;
+  }
+
+  private List<Model> afterApply(Resource id, List<Model> in, List<Model> out) {
+    final String runId = FaradayCageContext.getRunId();
+    // parameter async is optional, defaults to false
+    final boolean async = getParameterMap().getOptional(ASYNC)
+      .map(RDFNode::asLiteral).map(Literal::getBoolean).orElse(false);
+    if (!async) {
+      applyTriggered(runId, id, in, out);
+      return out;
+    }
+    final CompletableFuture<Void> task = CompletableFuture.runAsync(() -> {
+      MDC.put("requestId", runId);
+      try {
+        applyTriggered(runId, id, in, out);
+      } catch (RuntimeException e) {
+        logger.warn("Asynchronous analytics of {} failed", id, e);
+      } finally {
+        MDC.remove("requestId");
+      }
+    }, executor);
+    pending.compute(runId, (k, tasks) -> {
+      final Set<CompletableFuture<Void>> result = tasks == null ? ConcurrentHashMap.newKeySet() : tasks;
+      result.add(task);
+      return result;
+    });
+    // runs that never await their analytics must not keep the finished tasks
+    task.whenComplete((v, e) -> pending.computeIfPresent(runId, (k, tasks) -> {
+      tasks.remove(task);
+      return tasks.isEmpty() ? null : tasks;
+    }));
+    // downstream nodes only get copy-on-write views, so the task keeps reading unmodified outputs
+    return views(out);
+  }
+
+  private static List<Model> views(List<Model> models) {
+    final List<Model> views = new ArrayList<>(models.size());
+    for (Model model : models) {
+      Model view = LazyUnionGraph.union(List.of(model), false);
+      view.setNsPrefixes(model.getNsPrefixMap());
+      views.add(view);
+    }
+    return views;
+  }
+
+  /**
+   * Blocks until all asynchronous analytics of the given run have been written.
+   */
+  public static void awaitPending(String runId) {
+    final Set<CompletableFuture<Void>> tasks = pending.remove(runId);
+    if (tasks != null) {
+      CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+    }
+  }
+
   @Override
   public DeerExecutionNode wrap(DeerExecutionNode executionNode) {
     if (executionNode instanceof Parameterized) {
@@ -99,6 +285,149 @@ public class SparqlAnalyticsWrapper extends AbstractParameterizedDeerExecutionNo
     return "";
   }
 
+  /**
+   * Collects a sample of the triples offered to it.
+   */
+  private interface Sampler {
+
+    void offer(Triple triple);
+
+    Graph getSample();
+
+  }
+
+  /**
+   * Uniform sample of a fixed number of triples (algorithm R).
+   */
+  private static class ReservoirSampler implements Sampler {
+
+    private final Triple[] reservoir;
+    private final SplittableRandom random = new SplittableRandom();
+    private long seen = 0;
+
+    private ReservoirSampler(int size) {
+      this.reservoir = new Triple[size];
+    }
+
+    @Override
+    public void offer(Triple triple) {
+      if (seen < reservoir.length) {
+        reservoir[(int) seen] = triple;
+      } else {
+        long j = random.nextLong(seen + 1);
+        if (j < reservoir.length) {
+          reservoir[(int) j] = triple;
+        }
+      }
+      seen++;
+    }
+
+    @Override
+    public Graph getSample() {
+      Graph sample = Factory.createDefaultGraph();
+      for (int i = 0; i < Math.min(seen, reservoir.length); i++) {
+        sample.add(reservoir[i]);
+      }
+      return sample;
+    }
+
+  }
+
+  /**
+   * Keeps every triple independently with a fixed probability.
+   */
+  private static class BernoulliSampler implements Sampler {
+
+    private final double probability;
+    private final SplittableRandom random = new SplittableRandom();
+    private final Graph sample = Factory.createDefaultGraph();
+
+    private BernoulliSampler(double probability) {
+      this.probability = probability;
+    }
+
+    @Override
+    public void offer(Triple triple) {
+      if (random.nextDouble() < probability) {
+        sample.add(triple);
+      }
+    }
+
+    @Override
+    public Graph getSample() {
+      return sample;
+    }
+
+  }
+
+  /**
+   * A JSON template with {@code ?variable} placeholders, split once into text and placeholder
+   * segments so that rendering is a single pass over the segments.
+   */
+  static class CompiledTemplate {
+
+    private final String source;
+    private final List<String> segments = new ArrayList<>();
+    private final Set<String> variables = new LinkedHashSet<>();
+
+    CompiledTemplate(String source) {
+      this.source = source;
+      int textStart = 0;
+      int i = 0;
+      while (i < source.length()) {
+        if (source.charAt(i) == '?') {
+          int end = i + 1;
+          while (end < source.length() && isVariableChar(source.charAt(end))) {
+            end++;
+          }
+          if (end > i + 1) {
+            // segments alternate between text (even indices) and variable names (odd indices)
+            segments.add(source.substring(textStart, i));
+            String variable = source.substring(i + 1, end);
+            segments.add(variable);
+            variables.add(variable);
+            textStart = end;
+          }
+          i = end;
+        } else {
+          i++;
+        }
+      }
+      segments.add(source.substring(textStart));
+    }
+
+    private static boolean isVariableChar(char c) {
+      return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    String getSource() {
+      return source;
+    }
+
+    Set<String> getVariables() {
+      return variables;
+    }
+
+    /**
+     * Replaces every bound placeholder by its value as a JSON string, unbound placeholders are kept.
+     */
+    String render(Map<String, String> bindings) {
+      StringBuilder sb = new StringBuilder(source.length());
+      for (int i = 0; i < segments.size(); i++) {
+        String segment = segments.get(i);
+        if (i % 2 == 0) {
+          sb.append(segment);
+        } else if (bindings.containsKey(segment)) {
+          sb.append(JSONObject.quote(bindings.get(segment)));
+        } else {
+          sb.append('?').append(segment);
+        }
+      }
+      return sb.toString();
+    }
+
+  }
+
   private class SparqlAnalyticsDecorator extends AbstractDeerExecutionNodeDecorator {
 
     public SparqlAnalyticsDecorator(ExecutionNode<Model> other) {
@@ -107,8 +436,7 @@ public class SparqlAnalyticsWrapper extends AbstractParameterizedDeerExecutionNo
 
     public List<Model> apply(List<Model> in) {
       List<Model> out = super.apply(in);
-      applyTriggered(getWrapped().getId(), in, out);
-      return out;
+      return afterApply(getWrapped().getId(), in, out);
     }
 
   }
@@ -121,8 +449,7 @@ public class SparqlAnalyticsWrapper extends AbstractParameterizedDeerExecutionNo
 
     public List<Model> apply(List<Model> in) {
       List<Model> out = super.apply(in);
-      applyTriggered(getWrapped().getId(), in, out);
-      return out;
+      return afterApply(getWrapped().getId(), in, out);
     }
 
   }
@@ -17,12 +17,14 @@
  */
 package org.aksw.deer.enrichments;
 
+import org.aksw.deer.util.DeltaGraph;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.AbstractParameterizedExecutionNode;
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
 
+import java.util.List;
+
 /**
  */
 public abstract class AbstractParameterizedEnrichmentOperator extends AbstractParameterizedExecutionNode<Model> implements ParameterizedEnrichmentOperator {
@@ -44,8 +46,16 @@ public abstract class AbstractParameterizedEnrichmentOperator extends AbstractPa
     return new DegreeBounds(1,1,1,1);
   }
 
+  /**
+   * Strips the deltas of delta execution from the inputs, unless this operator is {@link DeltaPropagating}.
+   */
+  @Override
+  public List<Model> apply(List<Model> data) {
+    return super.apply(this instanceof DeltaPropagating ? data : DeltaGraph.strip(data));
+  }
+
   public final Model deepCopy(Model model) {
-    return ModelFactory.createDefaultModel().add(model);
+    return DeltaGraph.copyOf(model);
   }
 
   @Override
@@ -53,19 +63,4 @@ public abstract class AbstractParameterizedEnrichmentOperator extends AbstractPa
     return DEER.resource(this.getClass().getSimpleName());
   }
 
-
-//  @Override
-//  protected void writeInputAnalytics(List<Model> data) {
-//    if (getInDegree() > 0) {
-//      writeAnalytics("input sizes", data.stream().map(m -> String.valueOf(m.size())).reduce("( ", (a, b) -> a + b + " ") + ")");
-//    }
-//  }
-//
-//  @Override
-//  protected void writeOutputAnalytics(List<Model> data) {
-//    if (getOutDegree() > 0) {
-//      writeAnalytics("output sizes", data.stream().map(m->String.valueOf(m.size())).reduce("( ", (a, b) -> a + b + " ") + ")");
-//    }
-//  }
-
 }
@@ -22,8 +22,12 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multiset;
 import org.aksw.deer.learning.ReverseLearnable;
 import org.aksw.deer.learning.SelfConfigurable;
+import org.aksw.deer.util.DeltaGraph;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ValidatableParameterMap;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.*;
 import org.pf4j.Extension;
 import org.slf4j.Logger;
@@ -38,7 +42,7 @@ import java.util.Objects;
  * 
  */
 @Extension
-public class AuthorityConformationEnrichmentOperator extends AbstractParameterizedEnrichmentOperator implements ReverseLearnable, SelfConfigurable {
+public class AuthorityConformationEnrichmentOperator extends AbstractParameterizedEnrichmentOperator implements ReverseLearnable, SelfConfigurable, DeltaPropagating {
 
   private static final Logger logger = LoggerFactory.getLogger(AuthorityConformationEnrichmentOperator.class);
 
@@ -63,8 +67,10 @@ public class AuthorityConformationEnrichmentOperator extends AbstractParameteriz
 
   @Override
   protected List<Model> safeApply(List<Model> models) {
-    final Model model = models.get(0);
-    final Model conformModel = ModelFactory.createDefaultModel();
+    return DeltaGraph.propagate(models, this::conform);
+  }
+
+  private List<Model> conform(List<Model> models) {
     final Map<String, String> authorityMapping = new HashMap<>();
     getParameterMap().listPropertyObjects(OPERATION)
       .map(RDFNode::asResource)
@@ -73,18 +79,17 @@ public class AuthorityConformationEnrichmentOperator extends AbstractParameteriz
         final String target = op.getPropertyResourceValue(TARGET_AUTHORITY).asResource().getURI();
         authorityMapping.put(source, target);
       });
-    model.listStatements().forEachRemaining(stmt -> {
-      Resource subject = stmt.getSubject();
+    return Lists.newArrayList(OperatorFusion.map(getId(), models.get(0), (t, sink) -> {
+      Node subject = t.getSubject();
       for (String source : authorityMapping.keySet()) {
-        if (!Objects.equals(source, "") && subject.getURI().startsWith(source)) {
+        if (!Objects.equals(source, "") && subject.isURI() && subject.getURI().startsWith(source)) {
           String conformedUri = subject.getURI().replaceFirst(source, authorityMapping.get(source));
-          subject = ResourceFactory.createResource(conformedUri);
+          subject = NodeFactory.createURI(conformedUri);
           break;
         }
       }
-      conformModel.add(subject, stmt.getPredicate(), stmt.getObject());
-    });
-    return Lists.newArrayList(conformModel);
+      sink.accept(Triple.create(subject, t.getPredicate(), t.getObject()));
+    }));
   }
 
   @Override
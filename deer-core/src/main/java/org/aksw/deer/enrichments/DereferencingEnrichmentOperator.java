@@ -18,8 +18,10 @@
 package org.aksw.deer.enrichments;
 
 import com.google.common.collect.Lists;
+import org.aksw.deer.DeerMetrics;
 import org.aksw.deer.learning.ReverseLearnable;
 import org.aksw.deer.learning.SelfConfigurable;
+import org.aksw.deer.util.DeltaGraph;
 import org.aksw.deer.vocabulary.DBR;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ThreadlocalInheritingCompletableFuture;
@@ -107,7 +109,7 @@ import java.util.stream.Collectors;
  *
  */
 @Extension
-public class DereferencingEnrichmentOperator extends AbstractParameterizedEnrichmentOperator implements ReverseLearnable, SelfConfigurable {
+public class DereferencingEnrichmentOperator extends AbstractParameterizedEnrichmentOperator implements ReverseLearnable, SelfConfigurable, DeltaPropagating {
 
 //   * <blockquote>
 //   *     <b>{@code :endpoint} </b>
@@ -144,6 +146,12 @@ public class DereferencingEnrichmentOperator extends AbstractParameterizedEnrich
 
   private static final ConcurrentMap<Resource, CompletableFuture<Model>> cache = new ConcurrentHashMap<>();
 
+  private static final DeerMetrics.Counter cacheHits = DeerMetrics.counter("deer_cache_requests_total",
+    "Lookups in the caches of DEER nodes.", "cache", "dereferencing", "result", "hit");
+
+  private static final DeerMetrics.Counter cacheMisses = DeerMetrics.counter("deer_cache_requests_total",
+    "Lookups in the caches of DEER nodes.", "cache", "dereferencing", "result", "miss");
+
   @Override
   public String getDescription() {
     return "Query additional triples from SPARQL endpoints or via content negotiation";
@@ -183,6 +191,10 @@ public class DereferencingEnrichmentOperator extends AbstractParameterizedEnrich
 
   @Override
   protected List<Model> safeApply(List<Model> models) {
+    return DeltaGraph.propagate(models, this::dereference);
+  }
+
+  private List<Model> dereference(List<Model> models) {
     endpoint = getParameterMap().getOptional(USE_SPARQL_ENDPOINT)
       .map(r -> r.asResource().getURI());
     initializeOperations();
@@ -291,6 +303,7 @@ public class DereferencingEnrichmentOperator extends AbstractParameterizedEnrich
     CompletableFuture<Model> future = new ThreadlocalInheritingCompletableFuture<>();
     cache.putIfAbsent(o, future);
     if (cache.get(o) != future) {
+      cacheHits.increment();
       logger.debug("cached future for " + o.getURI());
       try {
         return cache.get(o).get();
@@ -298,6 +311,7 @@ public class DereferencingEnrichmentOperator extends AbstractParameterizedEnrich
         throw new RuntimeException(e);
       }
     }
+    cacheMisses.increment();
     logger.debug("no cache for " + o.getURI());
     Model result = ModelFactory.createDefaultModel();
     URL url;
@@ -19,21 +19,25 @@ package org.aksw.deer.enrichments;
 
 import org.aksw.deer.learning.ReverseLearnable;
 import org.aksw.deer.learning.SelfConfigurable;
+import org.aksw.deer.util.DeltaGraph;
+import org.aksw.deer.util.SparqlQueryCache;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ValidatableParameterMap;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.rdf.model.*;
 import org.pf4j.Extension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 /**
  */
 @Extension
-public class FilterEnrichmentOperator extends AbstractParameterizedEnrichmentOperator implements ReverseLearnable, SelfConfigurable {
+public class FilterEnrichmentOperator extends AbstractParameterizedEnrichmentOperator implements ReverseLearnable, SelfConfigurable, DeltaPropagating {
 
   private static final Logger logger = LoggerFactory.getLogger(FilterEnrichmentOperator.class);
 
@@ -64,19 +68,25 @@ public class FilterEnrichmentOperator extends AbstractParameterizedEnrichmentOpe
 
   @Override
   protected List<Model> safeApply(List<Model> models) {
-    return List.of(filterModel(models.get(0)));
+    if (getParameterMap().getOptional(SPARQL_CONSTRUCT_QUERY).isPresent()) {
+      // CONSTRUCT queries may join triples, so deltas can not be derived triple by triple
+      return List.of(filterModel(models.get(0)));
+    }
+    return DeltaGraph.propagate(models, ms -> List.of(filterModel(ms.get(0))));
   }
 
   private Model filterModel(Model model) {
-    final Model resultModel = ModelFactory.createDefaultModel();
     final Optional<RDFNode> sparqlQuery = getParameterMap()
       .getOptional(SPARQL_CONSTRUCT_QUERY);
     if (sparqlQuery.isPresent()) {
       logger.info("Executing SPARQL CONSTRUCT query for " + getId() + " ...");
-      return QueryExecutionFactory
-        .create(sparqlQuery.get().asLiteral().getString(), model)
+      final SparqlQueryCache queryCache = SparqlQueryCache.getInstance();
+      final Model result = QueryExecutionFactory
+        .create(queryCache.getQuery(sparqlQuery.get().asLiteral().getString()), model)
         .execConstruct();
+      return result;
     } else {
+      final List<Triple> patterns = new ArrayList<>();
       getParameterMap().listPropertyObjects(SELECTOR)
         .map(RDFNode::asResource)
         .forEach(selectorResource -> {
@@ -87,15 +97,19 @@ public class FilterEnrichmentOperator extends AbstractParameterizedEnrichmentOpe
             s == null ? "[]" : "<" + s.asResource().getURI() + ">",
             p == null ? "[]" : "<" + p.asResource().getURI() + ">",
             o == null ? "[]" : "(<)(\")" + o.toString() + "(\")(>)");
-          SimpleSelector selector = new SimpleSelector(
-            s == null ? null : s.asResource(),
-            p == null ? null : p.as(Property.class),
-            o
-          );
-          resultModel.add(model.listStatements(selector));
+          patterns.add(Triple.createMatch(
+            s == null ? null : s.asNode(),
+            p == null ? null : p.asNode(),
+            o == null ? null : o.asNode()
+          ));
         });
+      // a triple matching several patterns is kept once, just like in a model
+      return OperatorFusion.map(getId(), model, (t, sink) -> {
+        if (patterns.stream().anyMatch(pattern -> pattern.matches(t))) {
+          sink.accept(t);
+        }
+      });
     }
-    return resultModel;
   }
 
   @Override
@@ -0,0 +1,199 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.Instance;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.mem.GraphMem;
+import org.apache.jena.rdf.listeners.StatementListener;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.shared.PrefixMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Builds LIMES caches from Jena models for the {@link LinkingEnrichmentOperator}.
+ * <p>
+ * Only the properties referenced by a link specification are converted, instances are converted
+ * in parallel and the resulting caches are memoized per model and set of projected properties.
+ * Memoized caches are dropped as soon as their model is modified or garbage collected.
+ * Only caches of plain in-memory graphs are memoized: views such as union graphs reflect writes
+ * to the graphs underneath them without notifying their own listeners.
+ * A model is observed before its first cache is built and a cache is only memoized if the model
+ * was not modified while building it.
+ */
+final class LimesCacheBuilder {
+
+  private static final Logger logger = LoggerFactory.getLogger(LimesCacheBuilder.class);
+
+  private static final Pattern PROPERTY_REFERENCE = Pattern.compile("(?<![\\w.])([xy])\\.([^,\\s()]+)");
+
+  private static final Map<Graph, Map<Set<String>, ACache>> memo = new WeakHashMap<>();
+
+  private static final Map<Graph, long[]> generations = new WeakHashMap<>();
+
+  private LimesCacheBuilder() {
+
+  }
+
+  /**
+   * Extracts the properties a link specification references for the given variable
+   * ({@code "x"} for the source, {@code "y"} for the target).
+   * Prefixed names are expanded using {@code prefixes}.
+   *
+   * @return the referenced properties or {@code Optional.empty()} if they can not be
+   * determined reliably, e.g. because they use an undeclared prefix.
+   */
+  static Optional<Set<String>> getReferencedProperties(String linkSpecification, String variable,
+                                                       PrefixMapping prefixes) {
+    Set<String> properties = new HashSet<>();
+    Matcher matcher = PROPERTY_REFERENCE.matcher(linkSpecification);
+    while (matcher.find()) {
+      String property = matcher.group(2);
+      if (!property.contains("://") && !property.startsWith("urn:")) {
+        String expanded = prefixes.expandPrefix(property);
+        if (expanded.equals(property)) {
+          return Optional.empty();
+        }
+        property = expanded;
+      }
+      if (matcher.group(1).equals(variable)) {
+        properties.add(property);
+      }
+    }
+    return properties.isEmpty() ? Optional.empty() : Optional.of(properties);
+  }
+
+  /**
+   * Converts {@code model} to a LIMES cache containing only the given properties
+   * or all properties if {@code properties} is empty.
+   */
+  static ACache toCache(Model model, Optional<Set<String>> properties) {
+    final Set<String> key = properties.orElse(Set.of());
+    final Graph graph = model.getGraph();
+    if (!(graph instanceof GraphMem)) {
+      final long startTime = System.currentTimeMillis();
+      final ACache cache = buildCache(model, key);
+      logger.info("Built LIMES cache of {} instances in {}ms.", cache.size(), System.currentTimeMillis() - startTime);
+      return cache;
+    }
+    final long generation;
+    synchronized (memo) {
+      ACache cached = memo.getOrDefault(graph, Map.of()).get(key);
+      if (cached != null) {
+        logger.info("Reusing LIMES cache of {} instances.", cached.size());
+        return cached;
+      }
+      // listen before building, so writes during the build are noticed
+      if (!generations.containsKey(graph)) {
+        generations.put(graph, new long[1]);
+        model.register(new InvalidationListener());
+      }
+      generation = generations.get(graph)[0];
+    }
+    final long startTime = System.currentTimeMillis();
+    final ACache cache = buildCache(model, key);
+    logger.info("Built LIMES cache of {} instances in {}ms.", cache.size(), System.currentTimeMillis() - startTime);
+    synchronized (memo) {
+      if (generations.get(graph)[0] == generation) {
+        memo.computeIfAbsent(graph, g -> new HashMap<>()).put(key, cache);
+      }
+    }
+    return cache;
+  }
+
+  private static ACache buildCache(Model model, Set<String> properties) {
+    final List<Property> projection = properties.stream()
+      .map(ResourceFactory::createProperty)
+      .collect(Collectors.toList());
+    final Set<Resource> subjects = new HashSet<>();
+    if (projection.isEmpty()) {
+      model.listSubjects().forEachRemaining(subjects::add);
+    } else {
+      projection.forEach(p -> model.listSubjectsWithProperty(p).forEachRemaining(subjects::add));
+    }
+    // concurrent reads are safe as long as nobody writes to the model while we convert it
+    final List<Instance> instances = subjects.parallelStream()
+      .filter(Resource::isURIResource)
+      .map(subject -> toInstance(model, subject, projection))
+      .filter(Objects::nonNull)
+      .collect(Collectors.toList());
+    final ACache cache = new MemoryCache();
+    instances.forEach(cache::addInstance);
+    return cache;
+  }
+
+  private static Instance toInstance(Model model, Resource subject, List<Property> projection) {
+    Instance instance = null;
+    List<Property> predicates = projection.isEmpty() ? Collections.singletonList(null) : projection;
+    for (Property p : predicates) {
+      StmtIterator it = model.listStatements(subject, p, (RDFNode) null);
+      while (it.hasNext()) {
+        Statement stmt = it.next();
+        if (stmt.getObject().isAnon()) {
+          continue;
+        }
+        if (instance == null) {
+          instance = new Instance(subject.getURI());
+        }
+        instance.addProperty(stmt.getPredicate().getURI(), stmt.getObject().toString());
+      }
+    }
+    return instance;
+  }
+
+  private static void invalidate(Graph graph) {
+    synchronized (memo) {
+      memo.remove(graph);
+      long[] generation = generations.get(graph);
+      if (generation != null) {
+        generation[0]++;
+      }
+    }
+  }
+
+  /**
+   * Drops all memoized caches of a model once it is modified.
+   */
+  private static class InvalidationListener extends StatementListener {
+
+    @Override
+    public void addedStatement(Statement s) {
+      invalidate(s.getModel().getGraph());
+    }
+
+    @Override
+    public void removedStatement(Statement s) {
+      invalidate(s.getModel().getGraph());
+    }
+
+    @Override
+    public void notifyEvent(Model m, Object event) {
+      invalidate(m.getGraph());
+    }
+
+  }
+
+}
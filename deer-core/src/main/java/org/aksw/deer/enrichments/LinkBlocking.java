@@ -0,0 +1,239 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.limes.core.controller.LSPipeline;
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.Instance;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.ls.LinkSpecification;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Partitioned link discovery for the {@link LinkingEnrichmentOperator}.
+ * <p>
+ * Source and target instances are assigned to blocks by a blocking key and only instances
+ * sharing a block are compared. Every block pair is executed as its own LIMES run on a thread
+ * pool and the resulting mappings are merged.
+ * Instances without a blocking key are compared against all instances of the other side.
+ */
+final class LinkBlocking {
+
+  private static final Logger logger = LoggerFactory.getLogger(LinkBlocking.class);
+
+  private static final String GEO_NS = "http://www.w3.org/2003/01/geo/wgs84_pos#";
+
+  static final String LATITUDE = GEO_NS + "lat";
+
+  static final String LONGITUDE = GEO_NS + "long";
+
+  /**
+   * Computes the blocking keys of an instance.
+   */
+  interface KeyFunction {
+
+    /**
+     * @return the keys of the blocks {@code instance} belongs to, empty if it has no key
+     */
+    Set<String> sourceKeys(Instance instance);
+
+    /**
+     * @return the keys of the blocks {@code instance} should be compared in, empty if it has no key
+     */
+    default Set<String> targetKeys(Instance instance) {
+      return sourceKeys(instance);
+    }
+
+    /**
+     * @return the properties needed to compute the keys
+     */
+    Set<String> getProperties();
+
+  }
+
+  private LinkBlocking() {
+
+  }
+
+  /**
+   * Blocks by the lower cased first {@code length} characters of the values of {@code property}.
+   */
+  static KeyFunction byPrefix(String property, int length) {
+    return byValue(property, value -> {
+      String lexical = lexicalForm(value).trim().toLowerCase(Locale.ROOT);
+      return lexical.substring(0, Math.min(length, lexical.length()));
+    });
+  }
+
+  /**
+   * Blocks by the values of {@code property}, e.g. {@code rdf:type}.
+   */
+  static KeyFunction byValue(String property) {
+    return byValue(property, Function.identity());
+  }
+
+  private static KeyFunction byValue(String property, Function<String, String> keyOf) {
+    return new KeyFunction() {
+      @Override
+      public Set<String> sourceKeys(Instance instance) {
+        Set<String> keys = new HashSet<>();
+        for (String value : instance.getProperty(property)) {
+          keys.add(keyOf.apply(value));
+        }
+        return keys;
+      }
+
+      @Override
+      public Set<String> getProperties() {
+        return Set.of(property);
+      }
+    };
+  }
+
+  /**
+   * Blocks by WGS84 tiles of {@code tileSize} degrees. Targets are also placed into the
+   * eight neighbouring tiles, so that pairs closer than one tile are never missed.
+   * Longitudes wrap around at the antimeridian: they are divided into a whole number of tiles
+   * per revolution, at least {@code tileSize} wide, so that the tiles at 180 and -180 degrees
+   * are neighbours.
+   */
+  static KeyFunction byGeoTile(double tileSize) {
+    if (!(tileSize > 0)) {
+      throw new IllegalArgumentException("Tile size must be positive, but was " + tileSize);
+    }
+    final long longitudeTiles = Math.max(1, (long) Math.floor(360 / tileSize));
+    return new KeyFunction() {
+      @Override
+      public Set<String> sourceKeys(Instance instance) {
+        return tiles(instance, 0);
+      }
+
+      @Override
+      public Set<String> targetKeys(Instance instance) {
+        return tiles(instance, 1);
+      }
+
+      private Set<String> tiles(Instance instance, int radius) {
+        Set<String> keys = new HashSet<>();
+        for (String lat : instance.getProperty(LATITUDE)) {
+          for (String lon : instance.getProperty(LONGITUDE)) {
+            try {
+              long x = (long) Math.floor(Double.parseDouble(lexicalForm(lat)) / tileSize);
+              long y = (long) Math.floor((Double.parseDouble(lexicalForm(lon)) + 180) * longitudeTiles / 360);
+              for (long i = x - radius; i <= x + radius; i++) {
+                for (long j = y - radius; j <= y + radius; j++) {
+                  keys.add(i + ":" + Math.floorMod(j, longitudeTiles));
+                }
+              }
+            } catch (NumberFormatException ignored) {
+              // malformed coordinates are treated like missing ones
+            }
+          }
+        }
+        return keys;
+      }
+
+      @Override
+      public Set<String> getProperties() {
+        return Set.of(LATITUDE, LONGITUDE);
+      }
+    };
+  }
+
+  /**
+   * Strips datatype and language tag from a literal as stored in a LIMES cache.
+   */
+  private static String lexicalForm(String value) {
+    int i = value.lastIndexOf("^^");
+    if (i < 0) {
+      i = value.lastIndexOf('@');
+    }
+    return i < 0 ? value : value.substring(0, i);
+  }
+
+  /**
+   * Executes {@code linkSpecification} block wise with the given parallelism.
+   */
+  static AMapping execute(ACache source, ACache target, String linkSpecification, double threshold,
+                          KeyFunction keyFunction, int parallelism) {
+    final Map<String, ACache> sourceBlocks = new HashMap<>();
+    final Map<String, ACache> targetBlocks = new HashMap<>();
+    final ACache keylessSources = new MemoryCache();
+    final List<Instance> keylessTargets = new ArrayList<>();
+    for (Instance instance : source.getAllInstances()) {
+      Set<String> keys = keyFunction.sourceKeys(instance);
+      if (keys.isEmpty()) {
+        keylessSources.addInstance(instance);
+      }
+      for (String key : keys) {
+        sourceBlocks.computeIfAbsent(key, k -> new MemoryCache()).addInstance(instance);
+      }
+    }
+    for (Instance instance : target.getAllInstances()) {
+      Set<String> keys = keyFunction.targetKeys(instance);
+      if (keys.isEmpty()) {
+        keylessTargets.add(instance);
+      }
+      for (String key : keys) {
+        if (sourceBlocks.containsKey(key)) {
+          targetBlocks.computeIfAbsent(key, k -> new MemoryCache()).addInstance(instance);
+        }
+      }
+    }
+    final List<ACache[]> blockPairs = new ArrayList<>();
+    for (Map.Entry<String, ACache> sourceBlock : sourceBlocks.entrySet()) {
+      ACache targetBlock = targetBlocks.computeIfAbsent(sourceBlock.getKey(), k -> new MemoryCache());
+      keylessTargets.forEach(targetBlock::addInstance);
+      if (targetBlock.size() > 0) {
+        blockPairs.add(new ACache[]{sourceBlock.getValue(), targetBlock});
+      }
+    }
+    if (keylessSources.size() > 0) {
+      blockPairs.add(new ACache[]{keylessSources, target});
+    }
+    logger.info("Executing link specification on {} block pairs with parallelism {} ...", blockPairs.size(), parallelism);
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+    try {
+      List<Future<AMapping>> results = new ArrayList<>();
+      for (ACache[] pair : blockPairs) {
+        results.add(executor.submit(() ->
+          LSPipeline.execute(pair[0], pair[1], new LinkSpecification(linkSpecification, threshold))));
+      }
+      AMapping mapping = MappingFactory.createDefaultMapping();
+      for (Future<AMapping> result : results) {
+        result.get().getMap().forEach((s, targets) -> targets.forEach((t, sim) -> mapping.add(s, t, sim)));
+      }
+      return mapping;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during blocked link discovery", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Blocked link discovery failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
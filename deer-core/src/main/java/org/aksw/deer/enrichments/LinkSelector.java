@@ -0,0 +1,167 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.limes.core.io.mapping.AMapping;
+
+import java.util.*;
+
+/**
+ * Streaming implementations of the select modes of the {@link LinkingEnrichmentOperator}.
+ * <p>
+ * Selected links are pushed into a {@link LinkSink} while the mapping is traversed,
+ * so neither reversed maps nor intermediate mappings are materialized.
+ * Ties in confidence are broken by source and then target URI to keep results deterministic.
+ */
+final class LinkSelector {
+
+  /**
+   * Orders candidates by descending confidence, then by ascending source and target.
+   */
+  static final Comparator<Candidate> BEST_FIRST = Comparator
+    .comparingDouble((Candidate c) -> c.confidence).reversed()
+    .thenComparing(c -> c.source)
+    .thenComparing(c -> c.target);
+
+  private LinkSelector() {
+
+  }
+
+  /**
+   * Keeps all links.
+   */
+  static void all(AMapping mapping, LinkSink sink) {
+    mapping.getMap().forEach((source, targets) ->
+      targets.forEach((target, confidence) -> sink.accept(source, target, confidence)));
+  }
+
+  /**
+   * Keeps the single link with the highest confidence, ties are broken by {@link #BEST_FIRST}.
+   */
+  static void best(AMapping mapping, LinkSink sink) {
+    String bestSource = null;
+    String bestTarget = null;
+    double max = Double.NEGATIVE_INFINITY;
+    for (Map.Entry<String, HashMap<String, Double>> sourceEntry : mapping.getMap().entrySet()) {
+      String source = sourceEntry.getKey();
+      for (Map.Entry<String, Double> entry : sourceEntry.getValue().entrySet()) {
+        double confidence = entry.getValue();
+        String target = entry.getKey();
+        if (bestSource == null || confidence > max || (confidence == max
+          && (source.compareTo(bestSource) < 0 || (source.equals(bestSource) && target.compareTo(bestTarget) < 0)))) {
+          bestSource = source;
+          bestTarget = target;
+          max = confidence;
+        }
+      }
+    }
+    if (bestSource != null) {
+      sink.accept(bestSource, bestTarget, max);
+    }
+  }
+
+  /**
+   * Keeps, for each source, the link(s) with the highest confidence.
+   */
+  static void bestPerSource(AMapping mapping, LinkSink sink) {
+    List<String> best = new ArrayList<>();
+    mapping.getMap().forEach((source, targets) -> {
+      double max = Double.NEGATIVE_INFINITY;
+      best.clear();
+      for (Map.Entry<String, Double> entry : targets.entrySet()) {
+        double confidence = entry.getValue();
+        if (confidence > max) {
+          max = confidence;
+          best.clear();
+        }
+        if (confidence == max) {
+          best.add(entry.getKey());
+        }
+      }
+      Collections.sort(best);
+      for (String target : best) {
+        sink.accept(source, target, max);
+      }
+    });
+  }
+
+  /**
+   * Keeps a 1:1 subset of the links, greedily picking the links with the highest confidence
+   * first, as if all links had been sorted by {@link #BEST_FIRST}.
+   * <p>
+   * Instead of sorting all links, a global heap holds one candidate per unmatched source.
+   * Only if the best target of a source has been taken by another source, a heap of the
+   * remaining candidates of that source is built, so memory stays bounded by the number
+   * of sources plus the candidates of the sources currently in conflict.
+   */
+  static void bestOneToOne(AMapping mapping, LinkSink sink) {
+    final Map<String, HashMap<String, Double>> map = mapping.getMap();
+    final PriorityQueue<Candidate> heap = new PriorityQueue<>(Math.max(1, map.size()), BEST_FIRST);
+    map.forEach((source, targets) -> {
+      Candidate best = null;
+      for (Map.Entry<String, Double> entry : targets.entrySet()) {
+        Candidate candidate = new Candidate(source, entry.getKey(), entry.getValue());
+        if (best == null || BEST_FIRST.compare(candidate, best) < 0) {
+          best = candidate;
+        }
+      }
+      if (best != null) {
+        heap.add(best);
+      }
+    });
+    final Set<String> matchedTargets = new HashSet<>();
+    final Map<String, PriorityQueue<Candidate>> remaining = new HashMap<>();
+    while (!heap.isEmpty()) {
+      Candidate candidate = heap.poll();
+      if (matchedTargets.add(candidate.target)) {
+        sink.accept(candidate.source, candidate.target, candidate.confidence);
+        remaining.remove(candidate.source);
+        continue;
+      }
+      PriorityQueue<Candidate> candidates = remaining.computeIfAbsent(candidate.source, source -> {
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(BEST_FIRST);
+        map.get(source).forEach((target, confidence) -> queue.add(new Candidate(source, target, confidence)));
+        return queue;
+      });
+      Candidate next = candidates.poll();
+      while (next != null && matchedTargets.contains(next.target)) {
+        next = candidates.poll();
+      }
+      if (next != null) {
+        heap.add(next);
+      } else {
+        remaining.remove(candidate.source);
+      }
+    }
+  }
+
+  static final class Candidate {
+
+    final String source;
+    final String target;
+    final double confidence;
+
+    Candidate(String source, String target, double confidence) {
+      this.source = source;
+      this.target = target;
+      this.confidence = confidence;
+    }
+
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.out.NodeFmtLib;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Destination for links selected by the {@link LinkingEnrichmentOperator}.
+ * <p>
+ * Links are pushed one by one, either straight into a model or into an N-Triples file,
+ * so that no intermediate mapping of the selected links has to be held in memory.
+ */
+abstract class LinkSink implements AutoCloseable {
+
+  private final Property linkingPredicate;
+  private final boolean inverse;
+  private long count = 0;
+
+  LinkSink(Property linkingPredicate, boolean inverse) {
+    this.linkingPredicate = linkingPredicate;
+    this.inverse = inverse;
+  }
+
+  /**
+   * Creates a sink adding links to {@code model}.
+   * If {@code inverse} is set, subjects and objects of the links are swapped.
+   */
+  static LinkSink toModel(Model model, Property linkingPredicate, boolean inverse) {
+    return new LinkSink(linkingPredicate, inverse) {
+      @Override
+      protected void write(String subject, Property predicate, String object) {
+        Resource s = model.createResource(subject);
+        model.add(s, predicate, model.createResource(object));
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  /**
+   * Creates a sink writing links as N-Triples to {@code file}, replacing its contents.
+   * If {@code inverse} is set, subjects and objects of the links are swapped.
+   */
+  static LinkSink toFile(Path file, Property linkingPredicate, boolean inverse) {
+    final Writer writer;
+    try {
+      writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open links file " + file, e);
+    }
+    final String predicateString = NodeFmtLib.str(linkingPredicate.asNode());
+    return new LinkSink(linkingPredicate, inverse) {
+      @Override
+      protected void write(String subject, Property predicate, String object) {
+        try {
+          writer.write(NodeFmtLib.str(NodeFactory.createURI(subject)));
+          writer.write(' ');
+          writer.write(predicateString);
+          writer.write(' ');
+          writer.write(NodeFmtLib.str(NodeFactory.createURI(object)));
+          writer.write(" .\n");
+        } catch (IOException e) {
+          throw new UncheckedIOException("Could not write to links file " + file, e);
+        }
+      }
+
+      @Override
+      public void close() {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException("Could not close links file " + file, e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Pushes the link from {@code source} to {@code target} into this sink.
+   */
+  void accept(String source, String target, double confidence) {
+    if (inverse) {
+      write(target, linkingPredicate, source);
+    } else {
+      write(source, linkingPredicate, target);
+    }
+    count++;
+  }
+
+  /**
+   * @return the number of links pushed into this sink so far
+   */
+  long getCount() {
+    return count;
+  }
+
+  protected abstract void write(String subject, Property predicate, String object);
+
+  @Override
+  public abstract void close();
+
+}
@@ -21,6 +21,7 @@ import com.google.common.collect.Lists;
 import org.aksw.deer.DeerAnalyticsStore;
 import org.aksw.deer.learning.ReverseLearnable;
 import org.aksw.deer.learning.SelfConfigurable;
+import org.aksw.deer.util.LazyUnionGraph;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ExecutionNode;
 import org.aksw.faraday_cage.engine.FaradayCageContext;
@@ -31,7 +32,6 @@ import org.aksw.limes.core.controller.MLPipeline;
 import org.aksw.limes.core.evaluation.evaluator.EvaluatorType;
 import org.aksw.limes.core.exceptions.UnsupportedMLImplementationException;
 import org.aksw.limes.core.io.cache.ACache;
-import org.aksw.limes.core.io.cache.MemoryCache;
 import org.aksw.limes.core.io.config.Configuration;
 import org.aksw.limes.core.io.config.reader.xml.XMLConfigurationReader;
 import org.aksw.limes.core.io.ls.LinkSpecification;
@@ -39,12 +39,17 @@ import org.aksw.limes.core.io.mapping.AMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.ml.algorithm.MLImplementationType;
 import org.apache.jena.rdf.model.*;
+import org.apache.jena.shared.PrefixMapping;
 import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
 import org.json.JSONObject;
 import org.pf4j.Extension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.function.Supplier;
 
@@ -72,6 +77,18 @@ public class LinkingEnrichmentOperator extends AbstractParameterizedEnrichmentOp
 
   public static final Property USE_ML = DEER.property("useML");
 
+  public static final Property LINKS_FILE = DEER.property("linksFile");
+
+  public static final Property BLOCKING_METHOD = DEER.property("blockingMethod");
+
+  public static final Property BLOCKING_PROPERTY = DEER.property("blockingProperty");
+
+  public static final Property BLOCKING_PREFIX_LENGTH = DEER.property("blockingPrefixLength");
+
+  public static final Property BLOCKING_TILE_SIZE = DEER.property("blockingTileSize");
+
+  public static final Property PARALLELISM = DEER.property("parallelism");
+
   private enum DATASET_PART {
     SOURCE, TARGET;
   }
@@ -80,6 +97,10 @@ public class LinkingEnrichmentOperator extends AbstractParameterizedEnrichmentOp
     BEST, BEST1TO1, BEST1TON, ALL;
   }
 
+  private enum BLOCKING {
+    NONE, PREFIX, TYPE, GEOTILE
+  }
+
 
   @Override
   public String getDescription() {
@@ -95,6 +116,12 @@ public class LinkingEnrichmentOperator extends AbstractParameterizedEnrichmentOp
       .declareProperty(LINK_SPECIFICATION)
       .declareProperty(LINKING_PREDICATE)
       .declareProperty(THRESHOLD)
+      .declareProperty(LINKS_FILE)
+      .declareProperty(BLOCKING_METHOD)
+      .declareProperty(BLOCKING_PROPERTY)
+      .declareProperty(BLOCKING_PREFIX_LENGTH)
+      .declareProperty(BLOCKING_TILE_SIZE)
+      .declareProperty(PARALLELISM)
       .declareValidationShape(getValidationModelFor(LinkingEnrichmentOperator.class))
       .build();
   }
@@ -130,28 +157,45 @@ public class LinkingEnrichmentOperator extends AbstractParameterizedEnrichmentOp
       Configuration cfg = new XMLConfigurationReader(specFile.get()).read();
       final Property linkingPredicate = ResourceFactory.createProperty(cfg.getAcceptanceRelation());
       if (getOutDegree() == 1) {
-        addLinksToModel(linksPart, model, getMappingFromConfiguration(cfg), linkingPredicate);
+        emitLinks(linksPart, model, getMappingFromConfiguration(cfg), linkingPredicate);
         return Lists.newArrayList(model);
       } else {
         Model linkModel = ModelFactory.createDefaultModel();
-        addLinksToModel(linksPart, linkModel, getMappingFromConfiguration(cfg), linkingPredicate);
+        emitLinks(linksPart, linkModel, getMappingFromConfiguration(cfg), linkingPredicate);
         return Lists.newArrayList(model, linkModel);
       }
     } else if (getInDegree() == 2) {
-      ACache source = modelToCache(models.get(0));
-      ACache target = modelToCache(models.get(1));
       // safeguard against empty models
-      if (models.get(0).size() == 0 || models.get(1).size() == 0 ) {
+      if (models.get(0).isEmpty() || models.get(1).isEmpty()) {
         if (getOutDegree() == 1) {
-          return List.of(models.get(0).add(models.get(1)));
+          return List.of(LazyUnionGraph.union(models, true));
         } else if (getOutDegree() == 2) {
           return models;
         } else {
           return List.of(models.get(0), models.get(1), ModelFactory.createDefaultModel());
         }
       }
+      // blocking is only supported for link specifications
+      final Optional<LinkBlocking.KeyFunction> blocking = linkSpecification.isPresent()
+        ? getBlockingKeyFunction() : Optional.empty();
+      // prefixed names in the link specification resolve against the prefixes of the configuration
+      final PrefixMapping prefixes = parameters.getOptional(LINK_SPECIFICATION)
+        .map(n -> (PrefixMapping) n.getModel()).orElse(PrefixMapping.Standard);
+      // machine learning may use any property, so only link specifications allow projecting
+      ACache source = LimesCacheBuilder.toCache(models.get(0), withBlockingProperties(
+        linkSpecification.flatMap(ls -> LimesCacheBuilder.getReferencedProperties(ls, "x", prefixes)), blocking));
+      ACache target = LimesCacheBuilder.toCache(models.get(1), withBlockingProperties(
+        linkSpecification.flatMap(ls -> LimesCacheBuilder.getReferencedProperties(ls, "y", prefixes)), blocking));
       AMapping mapping = MappingFactory.createDefaultMapping();
-      if (linkSpecification.isPresent()) {
+      if (linkSpecification.isPresent() && blocking.isPresent()) {
+        // parallelism is optional, defaults to the number of available processors
+        final int parallelism = getParameterMap().getOptional(PARALLELISM)
+          .map(RDFNode::asLiteral).map(Literal::getInt)
+          .orElse(Runtime.getRuntime().availableProcessors());
+        mapping = LinkBlocking.execute(
+          source, target, linkSpecification.get(), threshold, blocking.get(), parallelism
+        );
+      } else if (linkSpecification.isPresent()) {
         mapping = LSPipeline.execute(
           source, target, new LinkSpecification(linkSpecification.get(), threshold)
         );
@@ -170,17 +214,18 @@ public class LinkingEnrichmentOperator extends AbstractParameterizedEnrichmentOp
           throw new IllegalArgumentException(e);
         }
       }
-      mapping = applySelectModeToMapping(mapping);
       if (getOutDegree() == 1) {
-        addLinksToModel(linksPart, models.get(0), mapping);
-        return new MergeEnrichmentOperator().safeApply(models);
+        // links go into their own model, the inputs are merged lazily and only copied if written to
+        Model linkModel = ModelFactory.createDefaultModel();
+        emitLinks(linksPart, linkModel, mapping);
+        return List.of(LazyUnionGraph.union(List.of(models.get(0), models.get(1), linkModel), true));
       } else if (getOutDegree() == 2) {
-        addLinksToModel(linksPart,
+        emitLinks(linksPart,
           models.get(linksPart == DATASET_PART.SOURCE ? 0 : 1), mapping);
         return models;
       } else {
         Model linkModel = ModelFactory.createDefaultModel();
-        addLinksToModel(linksPart, linkModel, mapping);
+        emitLinks(linksPart, linkModel, mapping);
         return Lists.newArrayList(models.get(0), models.get(1), linkModel);
       }
     } else if (getInDegree() == 1){
@@ -209,68 +254,89 @@ public class LinkingEnrichmentOperator extends AbstractParameterizedEnrichmentOp
     return model;
   }
 
+  private Optional<LinkBlocking.KeyFunction> getBlockingKeyFunction() {
+    // parameter blockingMethod is optional, defaults to "none"
+    final BLOCKING blockingMethod = getParameterMap().getOptional(BLOCKING_METHOD)
+      .map(n -> n.asLiteral().getString().toUpperCase())
+      .map(BLOCKING::valueOf).orElse(BLOCKING.NONE);
+    final Optional<String> blockingProperty = getParameterMap().getOptional(BLOCKING_PROPERTY)
+      .map(RDFNode::asResource).map(Resource::getURI);
+    switch (blockingMethod) {
+      case PREFIX:
+        // parameter blockingPrefixLength is optional, defaults to 3
+        final int prefixLength = getParameterMap().getOptional(BLOCKING_PREFIX_LENGTH)
+          .map(RDFNode::asLiteral).map(Literal::getInt).orElse(3);
+        return Optional.of(LinkBlocking.byPrefix(blockingProperty.orElse(RDFS.label.getURI()), prefixLength));
+      case TYPE:
+        return Optional.of(LinkBlocking.byValue(blockingProperty.orElse(RDF.type.getURI())));
+      case GEOTILE:
+        // parameter blockingTileSize is optional, defaults to 1 degree
+        final double tileSize = getParameterMap().getOptional(BLOCKING_TILE_SIZE)
+          .map(RDFNode::asLiteral).map(Literal::getDouble).orElse(1d);
+        return Optional.of(LinkBlocking.byGeoTile(tileSize));
+      case NONE:
+      default:
+        return Optional.empty();
+    }
+  }
+
+  private Optional<Set<String>> withBlockingProperties(Optional<Set<String>> properties,
+                                                       Optional<LinkBlocking.KeyFunction> blocking) {
+    if (properties.isEmpty() || blocking.isEmpty()) {
+      return properties;
+    }
+    Set<String> result = new HashSet<>(properties.get());
+    result.addAll(blocking.get().getProperties());
+    return Optional.of(result);
+  }
+
   private AMapping getMappingFromConfiguration(Configuration cfg) {
-    AMapping mapping = Controller.getMapping(cfg).getAcceptanceMapping();
-    return applySelectModeToMapping(mapping);
+    return Controller.getMapping(cfg).getAcceptanceMapping();
+  }
+
+  private void emitLinks(DATASET_PART linksPart, Model model, AMapping mapping) {
+    // parameter linkingPredicate must always be declared
+    final Property linkingPredicate = getParameterMap().get(LINKING_PREDICATE).as(Property.class);
+    emitLinks(linksPart, model, mapping, linkingPredicate);
+  }
+
+  /**
+   * Streams the links selected from {@code mapping} into {@code model},
+   * or into the links file if one is declared.
+   */
+  private void emitLinks(DATASET_PART linksPart, Model model, AMapping mapping, Property linkingPredicate) {
+    final boolean inverse = linksPart == DATASET_PART.TARGET;
+    // parameter linksFile is optional, if present links are written there instead of into the model
+    final Optional<Path> linksFile = getParameterMap().getOptional(LINKS_FILE)
+      .map(RDFNode::asLiteral).map(Literal::getString).map(Paths::get);
+    try (LinkSink sink = linksFile
+      .map(file -> LinkSink.toFile(file, linkingPredicate, inverse))
+      .orElseGet(() -> LinkSink.toModel(model, linkingPredicate, inverse))) {
+      selectLinks(mapping, sink);
+      DeerAnalyticsStore.write(FaradayCageContext.getRunId(), getId(),
+        new JSONObject().put("newDiscoveredLinks", sink.getCount()));
+    }
   }
 
-  private AMapping applySelectModeToMapping(AMapping mapping) {
-    AMapping result = mapping;
+  private void selectLinks(AMapping mapping, LinkSink sink) {
     // parameter selectMode is optional, defaults to "all"
     final SELECT selectMode = getParameterMap().getOptional(SELECT_MODE)
       .map(n -> n.asLiteral().getString().toUpperCase())
       .map(SELECT::valueOf).orElse(SELECT.ALL);
     switch (selectMode) {
       case BEST:
-        HashMap<Double, HashMap<String, TreeSet<String>>> reversedMap = mapping.getReversedMap();
-        double best = 0d;
-        for (Double sim : reversedMap.keySet()) {
-          if (sim > best) {
-            Map.Entry<String, TreeSet<String>> entry = reversedMap.get(sim).entrySet().iterator().next();
-            result = MappingFactory.createDefaultMapping();
-            result.add(entry.getKey(), entry.getValue().first(), sim);
-          }
-        }
+        LinkSelector.best(mapping, sink);
         break;
       case BEST1TO1:
-        result = mapping.getBestOneToOneMappings(mapping);
+        LinkSelector.bestOneToOne(mapping, sink);
         break;
       case BEST1TON:
-        result = mapping.getBestOneToNMapping();
+        LinkSelector.bestPerSource(mapping, sink);
         break;
+      case ALL:
+      default:
+        LinkSelector.all(mapping, sink);
     }
-    DeerAnalyticsStore.write(FaradayCageContext.getRunId(), getId(),
-      new JSONObject().put("newDiscoveredLinks", result.size()));
-    return result;
-  }
-
-  private void addLinksToModel(DATASET_PART linksPart, Model model, AMapping mapping) {
-    // parameter linkingPredicate must always be declared
-    final Property linkingPredicate = getParameterMap().get(LINKING_PREDICATE).as(Property.class);
-    addLinksToModel(linksPart, model, mapping, linkingPredicate);
-  }
-
-  private void addLinksToModel(DATASET_PART linksPart, Model model, AMapping mapping, Property linkingPredicate) {
-    // parameter linkingPredicate must always be declared
-    for (String s : mapping.getMap().keySet()) {
-      Resource subject = model.createResource(s);
-      for (String t : mapping.getMap().get(s).keySet()) {
-        Resource object = model.createResource(t);
-        if (linksPart == DATASET_PART.SOURCE) {
-          model.add(subject, linkingPredicate, object);
-        } else {
-          model.add(object, linkingPredicate, subject);
-        }
-      }
-    }
-  }
-
-  private ACache modelToCache(Model m) {
-    ACache cache = new MemoryCache();
-    m.listStatements()
-      .filterDrop(stmt -> stmt.getObject().isAnon())
-      .forEachRemaining(stmt -> cache.addTriple(stmt.getSubject().getURI(), stmt.getPredicate().getURI(), stmt.getObject().toString()));
-    return cache;
   }
 
   @Override
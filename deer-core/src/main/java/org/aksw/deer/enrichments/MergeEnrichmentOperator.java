@@ -17,28 +17,160 @@
  */
 package org.aksw.deer.enrichments;
 
+import org.aksw.deer.RunResources;
 import org.aksw.deer.learning.ReverseLearnable;
-import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
+import org.aksw.deer.learning.SelfConfigurable;
+import org.aksw.deer.util.DeltaGraph;
+import org.aksw.deer.util.ExternalTripleMerger;
+import org.aksw.deer.util.LazyUnionGraph;
+import org.aksw.deer.util.StreamingGraph;
+import org.aksw.deer.util.TripleStreams;
+import org.aksw.deer.vocabulary.DEER;
+import org.aksw.faraday_cage.engine.FaradayCageContext;
+import org.aksw.faraday_cage.engine.ValidatableParameterMap;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.tdb.TDBFactory;
+import org.apache.jena.tdb.TDBLoader;
 import org.pf4j.Extension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Extension
-public class MergeEnrichmentOperator extends AbstractEnrichmentOperator implements ReverseLearnable {
+public class MergeEnrichmentOperator extends AbstractParameterizedEnrichmentOperator implements ReverseLearnable, SelfConfigurable, DeltaPropagating {
+
+  private static final Logger logger = LoggerFactory.getLogger(MergeEnrichmentOperator.class);
+
+  public static final Property MERGE_MODE = DEER.property("mergeMode");
+
+  public static final Property DEDUPLICATE = DEER.property("deduplicate");
+
+  public static final Property SPILL_DIRECTORY = DEER.property("spillDirectory");
+
+  public static final Property RUN_SIZE = DEER.property("runSize");
+
+  public static final Property MERGED_FILE = DEER.property("mergedFile");
+
+  private static final int DEFAULT_RUN_SIZE = 1_000_000;
+
+  private enum MODE {
+    COPY, LAZY, EXTERNAL
+  }
 
   @Override
   public String getDescription() {
     return "Merge two or more graphs";
   }
 
+  @Override
+  public ValidatableParameterMap createParameterMap() {
+    return ValidatableParameterMap.builder()
+      .declareProperty(MERGE_MODE)
+      .declareProperty(DEDUPLICATE)
+      .declareProperty(SPILL_DIRECTORY)
+      .declareProperty(RUN_SIZE)
+      .declareProperty(MERGED_FILE)
+      .declareValidationShape(getValidationModelFor(MergeEnrichmentOperator.class))
+      .build();
+  }
+
   @Override
   protected List<Model> safeApply(List<Model> models) {
-    Model merge = ModelFactory.createDefaultModel();
-    for (Model model : models) {
-      merge.add(model);
+    return DeltaGraph.propagate(models, this::merge);
+  }
+
+  private List<Model> merge(List<Model> models) {
+    // parameter mergeMode is optional, defaults to "copy"
+    final MODE mergeMode = getParameterMap().getOptional(MERGE_MODE)
+      .map(n -> n.asLiteral().getString().toUpperCase())
+      .map(MODE::valueOf).orElse(MODE.COPY);
+    // parameter deduplicate is optional, defaults to true
+    final boolean deduplicate = getParameterMap().getOptional(DEDUPLICATE)
+      .map(RDFNode::asLiteral).map(Literal::getBoolean).orElse(true);
+    if (mergeMode != MODE.EXTERNAL && !deduplicate && TripleStreams.isEnabled()
+      && TripleStreams.hasStreamingConsumer(getId())) {
+      logger.info("Streaming {} models one after another for {} ...", models.size(), getId());
+      return List.of(StreamingGraph.concat(models));
+    }
+    switch (mergeMode) {
+      case LAZY:
+        logger.info("Creating lazy union of {} models for {} ...", models.size(), getId());
+        return List.of(LazyUnionGraph.union(models, deduplicate));
+      case EXTERNAL:
+        return List.of(mergeExternally(models));
+      case COPY:
+      default:
+        Model merge = ModelFactory.createDefaultModel();
+        for (Model model : models) {
+          merge.add(model);
+        }
+        return List.of(merge);
+    }
+  }
+
+  /**
+   * Merges the input models via an external sort into a TDB backed model,
+   * so that the merge result never has to fit into the heap.
+   * The TDB store is closed and deleted once the current run has ended, see {@link RunResources}.
+   */
+  private Model mergeExternally(List<Model> models) {
+    // parameter spillDirectory is optional, defaults to the system temp directory
+    final Path spillDirectory = getParameterMap().getOptional(SPILL_DIRECTORY)
+      .map(RDFNode::asLiteral).map(Literal::getString).map(Paths::get)
+      .orElse(Paths.get(System.getProperty("java.io.tmpdir")));
+    // parameter runSize is optional, defaults to 1,000,000 triples
+    final int runSize = getParameterMap().getOptional(RUN_SIZE)
+      .map(RDFNode::asLiteral).map(Literal::getInt).orElse(DEFAULT_RUN_SIZE);
+    // parameter mergedFile is optional, if present the merged N-Triples are kept there
+    final Optional<Path> mergedFile = getParameterMap().getOptional(MERGED_FILE)
+      .map(RDFNode::asLiteral).map(Literal::getString).map(Paths::get);
+    Path workingDirectory = null;
+    try {
+      Files.createDirectories(spillDirectory);
+      workingDirectory = Files.createTempDirectory(spillDirectory, "deer-merge-");
+      final Path nTriples = mergedFile.orElse(workingDirectory.resolve("merged.nt"));
+      logger.info("Merging {} models externally in {} for {} ...", models.size(), workingDirectory, getId());
+      final long size = new ExternalTripleMerger(workingDirectory, runSize)
+        .merge(models.stream().map(Model::getGraph).collect(Collectors.toList()), nTriples);
+      logger.info("Merged {} distinct triples for {}, loading them into TDB ...", size, getId());
+      final Dataset dataset = TDBFactory.createDataset(workingDirectory.resolve("tdb").toString());
+      final AutoCloseable deletion = RunResources.deletion(workingDirectory);
+      workingDirectory = null;
+      RunResources.register(FaradayCageContext.getRunId(), () -> {
+        TDBFactory.release(dataset);
+        deletion.close();
+      });
+      final Model result = dataset.getDefaultModel();
+      TDBLoader.loadModel(result, nTriples.toUri().toString());
+      if (mergedFile.isEmpty()) {
+        Files.deleteIfExists(nTriples);
+      }
+      models.forEach(m -> result.setNsPrefixes(m.getNsPrefixMap()));
+      return result;
+    } catch (IOException e) {
+      throw new RuntimeException("External merge failed in " + getId() + "!", e);
+    } finally {
+      if (workingDirectory != null) {
+        // the merge failed before its store was handed over
+        closeQuietly(RunResources.deletion(workingDirectory));
+      }
+    }
+  }
+
+  private static void closeQuietly(AutoCloseable resource) {
+    try {
+      resource.close();
+    } catch (Exception e) {
+      logger.warn("Could not clean up after a failed external merge", e);
     }
-    return List.of(merge);
   }
 
   @Override
@@ -107,6 +239,11 @@ public class MergeEnrichmentOperator extends AbstractEnrichmentOperator implemen
     return List.of(s, t);
   }
 
+  @Override
+  public ValidatableParameterMap learnParameterMap(List<Model> inputs, Model target, ValidatableParameterMap prototype) {
+    return createParameterMap().init();
+  }
+
   @Override
   public DegreeBounds getLearnableDegreeBounds() {
     return new DegreeBounds(2,2,1,1);
@@ -18,6 +18,7 @@
 package org.aksw.deer.enrichments;
 
 import com.google.common.collect.Lists;
+import org.aksw.deer.DeerMetrics;
 import org.aksw.deer.learning.ReverseLearnable;
 import org.aksw.deer.learning.SelfConfigurable;
 import org.aksw.deer.vocabulary.DEER;
@@ -77,6 +78,12 @@ public class NEREnrichmentOperator extends AbstractParameterizedEnrichmentOperat
 
   private static final ConcurrentMap<NEROperationID, CompletableFuture<List<String>>> cache = new ConcurrentHashMap<>();
 
+  private static final DeerMetrics.Counter cacheHits = DeerMetrics.counter("deer_cache_requests_total",
+    "Lookups in the caches of DEER nodes.", "cache", "ner", "result", "hit");
+
+  private static final DeerMetrics.Counter cacheMisses = DeerMetrics.counter("deer_cache_requests_total",
+    "Lookups in the caches of DEER nodes.", "cache", "ner", "result", "miss");
+
   /**
    * Defines the possible (sub)types of named entities to be discovered
    */
@@ -208,12 +215,14 @@ public class NEREnrichmentOperator extends AbstractParameterizedEnrichmentOperat
     CompletableFuture<List<String>> future = new ThreadlocalInheritingCompletableFuture<>();
     cache.putIfAbsent(key, future);
     if (cache.get(key) != future) {
+      cacheHits.increment();
       try {
         result = cache.get(key).get();
       } catch (InterruptedException | ExecutionException e) {
         throw new RuntimeException(e);
       }
     } else {
+      cacheMisses.increment();
       final IFoxApi fox = new FoxApi()
         .setApiURL(foxUri)
         .setTask(FoxParameter.TASK.NER)
@@ -0,0 +1,57 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.deer.util.FusedTripleGraph;
+import org.aksw.deer.util.TripleStreams;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+
+/**
+ * Fuses linear chains of per-triple enrichment operators into a single scan.
+ * <p>
+ * An operator of such a chain whose output flows into another per-triple operator only returns a
+ * pending {@link FusedTripleGraph}, the last operator of the chain evaluates all of them at once.
+ * If the chain ends in a node consuming its input as a stream, e.g. a file writer, the pending
+ * graph is streamed into it instead of being evaluated, see {@link TripleStreams}.
+ * Chains are detected on the configuration graph, so an output observed by more than one node is
+ * always evaluated right away. Fusion can be disabled through the system property
+ * {@code deer.operatorFusion}.
+ */
+final class OperatorFusion {
+
+  static final String ENABLED_PROPERTY = "deer.operatorFusion";
+
+  private OperatorFusion() {
+
+  }
+
+  /**
+   * Maps {@code input} through {@code mapper} on behalf of the execution node {@code node},
+   * deferring the evaluation if the output of {@code node} can be fused with its consumer.
+   */
+  static Model map(Resource node, Model input, FusedTripleGraph.TripleMapper mapper) {
+    return FusedTripleGraph.map(input, mapper, isFusableWithConsumer(node));
+  }
+
+  private static boolean isFusableWithConsumer(Resource node) {
+    return Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))
+      && TripleStreams.hasStreamingConsumer(node);
+  }
+
+}
@@ -20,10 +20,12 @@ package org.aksw.deer.enrichments;
 import com.google.common.collect.Lists;
 import org.aksw.deer.learning.ReverseLearnable;
 import org.aksw.deer.learning.SelfConfigurable;
+import org.aksw.deer.util.DeltaGraph;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ValidatableParameterMap;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.RDFNode;
 import org.pf4j.Extension;
@@ -35,7 +37,7 @@ import java.util.*;
 /**
  */
 @Extension
-public class PredicateConformationEnrichmentOperator extends AbstractParameterizedEnrichmentOperator implements ReverseLearnable, SelfConfigurable {
+public class PredicateConformationEnrichmentOperator extends AbstractParameterizedEnrichmentOperator implements ReverseLearnable, SelfConfigurable, DeltaPropagating {
 
   private static final Logger logger = LoggerFactory.getLogger(AuthorityConformationEnrichmentOperator.class);
 
@@ -58,25 +60,22 @@ public class PredicateConformationEnrichmentOperator extends AbstractParameteriz
 
   @Override
   protected List<Model> safeApply(List<Model> models) {
-    final Model model = models.get(0);
-    final Model conformModel = ModelFactory.createDefaultModel();
-    final Map<Property, Property> propertyMapping = new HashMap<>();
+    return DeltaGraph.propagate(models, this::conform);
+  }
+
+  private List<Model> conform(List<Model> models) {
+    final Map<Node, Node> propertyMapping = new HashMap<>();
     getParameterMap().listPropertyObjects(OPERATION)
       .map(RDFNode::asResource)
       .forEach(op -> {
         final Property source = op.getPropertyResourceValue(SOURCE_PREDICATE).as(Property.class);
         final Property target = op.getPropertyResourceValue(TARGET_PREDICATE).as(Property.class);
-        propertyMapping.put(source, target);
+        propertyMapping.put(source.asNode(), target.asNode());
       });
-    model.listStatements().forEachRemaining(stmt -> {
-      Property p = stmt.getPredicate();
+    return Lists.newArrayList(OperatorFusion.map(getId(), models.get(0), (t, sink) ->
       // conform properties
-      if (propertyMapping.containsKey(p)) {
-        p = propertyMapping.get(p);
-      }
-      conformModel.add(stmt.getSubject(), p, stmt.getObject());
-    });
-    return Lists.newArrayList(conformModel);
+      sink.accept(Triple.create(t.getSubject(), propertyMapping.getOrDefault(t.getPredicate(), t.getPredicate()), t.getObject()))
+    ));
   }
 
   @Override
@@ -18,17 +18,25 @@
 package org.aksw.deer.enrichments;
 
 import com.google.common.collect.Lists;
+import org.aksw.deer.util.DeltaGraph;
+import org.aksw.deer.util.ExecutionGraphTopology;
+import org.aksw.deer.util.JournalingGraph;
+import org.aksw.deer.util.SparqlQueryCache;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ValidatableParameterMap;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.update.UpdateAction;
+import org.apache.jena.update.UpdateRequest;
 import org.pf4j.Extension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  *
@@ -38,10 +46,16 @@ import java.util.List;
 @Extension
 public class SparqlUpdateEnrichmentOperator extends AbstractParameterizedEnrichmentOperator {
 
-  private static final Logger logger = LoggerFactory.getLogger(AuthorityConformationEnrichmentOperator.class);
+  private static final Logger logger = LoggerFactory.getLogger(SparqlUpdateEnrichmentOperator.class);
 
   public static final Property UPDATE = DEER.property("sparqlUpdateQuery");
 
+  public static final Property UPDATE_MODE = DEER.property("updateMode");
+
+  private enum MODE {
+    COPY, INPLACE, AUTO
+  }
+
   @Override
   public String getDescription() {
     return "Apply a SPARQL UPDATE query to the input graph";
@@ -51,16 +65,68 @@ public class SparqlUpdateEnrichmentOperator extends AbstractParameterizedEnrichm
   public ValidatableParameterMap createParameterMap() {
     return ValidatableParameterMap.builder()
       .declareProperty(UPDATE)
+      .declareProperty(UPDATE_MODE)
       .declareValidationShape(getValidationModelFor(SparqlUpdateEnrichmentOperator.class))
       .build();
   }
 
   @Override
   protected List<Model> safeApply(List<Model> models) {
-    Model model = ModelFactory.createDefaultModel().add(models.get(0));
     final String updateStatement = getParameterMap().get(UPDATE).asLiteral().getString();
-    UpdateAction.parseExecute(updateStatement, model);
+    final SparqlQueryCache queryCache = SparqlQueryCache.getInstance();
+    final UpdateRequest updateRequest = queryCache.getUpdateRequest(updateStatement);
+    Model model;
+    if (isInPlace(models.get(0))) {
+      model = models.get(0);
+      applyInPlace(updateRequest, model);
+    } else {
+      model = ModelFactory.createDefaultModel().add(models.get(0));
+      UpdateAction.execute(updateRequest, model);
+    }
     return Lists.newArrayList(model);
   }
 
+  private boolean isInPlace(Model input) {
+    if (DeltaGraph.of(input).isPresent()) {
+      // changes made in place would be journaled as changes of the input since the previous run
+      return false;
+    }
+    // parameter updateMode is optional, defaults to "auto"
+    final MODE updateMode = getParameterMap().getOptional(UPDATE_MODE)
+      .map(RDFNode::asLiteral)
+      .map(n -> n.getString().toUpperCase())
+      .map(MODE::valueOf).orElse(MODE.AUTO);
+    switch (updateMode) {
+      case INPLACE:
+        return true;
+      case AUTO:
+        // the input may only be modified if no other node gets to see it, including wrappers
+        // comparing the inputs and outputs of this node or its producer
+        final Optional<List<Resource>> producers = ExecutionGraphTopology.getProducers(getId());
+        return ExecutionGraphTopology.isSoleConsumerOfInput(getId())
+          && !ExecutionGraphTopology.isObservedByWrapper(getId())
+          && producers.isPresent() && producers.get().stream().noneMatch(ExecutionGraphTopology::isObservedByWrapper);
+      case COPY:
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Applies the update directly to {@code model}. Effective changes are journaled while the
+   * update runs, so that a failing update leaves {@code model} exactly as it was before.
+   */
+  private void applyInPlace(UpdateRequest updateRequest, Model model) {
+    logger.info("Applying SPARQL UPDATE in place for {} ...", getId());
+    final JournalingGraph journal = new JournalingGraph(model.getGraph());
+    try {
+      UpdateAction.execute(updateRequest, ModelFactory.createModelForGraph(journal));
+      journal.commit();
+    } catch (RuntimeException e) {
+      logger.warn("SPARQL UPDATE failed for {}, rolling back {} changes.", getId(), journal.getJournalSize());
+      journal.rollback();
+      throw e;
+    }
+  }
+
 }
\ No newline at end of file
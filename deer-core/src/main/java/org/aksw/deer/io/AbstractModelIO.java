@@ -18,10 +18,10 @@
 package org.aksw.deer.io;
 
 import org.aksw.deer.ParameterizedDeerExecutionNode;
+import org.aksw.deer.util.DeltaGraph;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.AbstractParameterizedExecutionNode;
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
 
 import java.nio.file.Path;
@@ -81,7 +81,7 @@ public abstract class AbstractModelIO extends AbstractParameterizedExecutionNode
 
   @Override
   public Model deepCopy(Model data) {
-    return ModelFactory.createDefaultModel().add(data);
+    return DeltaGraph.copyOf(data);
   }
 
   @Override
@@ -89,18 +89,4 @@ public abstract class AbstractModelIO extends AbstractParameterizedExecutionNode
     return DEER.resource(this.getClass().getSimpleName());
   }
 
-//  @Override
-//  protected void writeInputAnalytics(List<Model> data) {
-//    if (getInDegree() > 0) {
-//      writeAnalytics("input sizes", data.stream().map(m -> String.valueOf(m.size())).reduce("( ", (a, b) -> a + b + " ") + ")");
-//    }
-//  }
-//
-//  @Override
-//  protected void writeOutputAnalytics(List<Model> data) {
-//    if (getOutDegree() > 0) {
-//      writeAnalytics("output sizes", data.stream().map(m->String.valueOf(m.size())).reduce("( ", (a, b) -> a + b + " ") + ")");
-//    }
-//  }
-
 }
@@ -17,6 +17,17 @@
  */
 package org.aksw.deer.io;
 
+import org.aksw.deer.util.ExecutionGraphTopology;
+import org.aksw.deer.vocabulary.DEER;
+import org.aksw.faraday_cage.engine.FaradayCageContext;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.*;
+
 /**
  *
  *
@@ -24,9 +35,68 @@ package org.aksw.deer.io;
  */
 public abstract class AbstractModelReader extends AbstractModelIO implements ModelReader {
 
+  private static final Resource SPARQL_MODEL_WRITER = DEER.resource(SparqlModelWriter.class.getSimpleName());
+
   @Override
   public DegreeBounds getDegreeBounds() {
     return new DegreeBounds(0,0,1,1);
   }
 
+  /**
+   * Attaches the changes of {@code model}, read from {@code source}, relative to the previous run
+   * if delta execution is enabled.
+   * <p>
+   * The baseline of a source is kept per set of {@link SparqlModelWriter} targets (endpoint and
+   * graph) its model flows into, since deltas are only meaningful relative to what was written
+   * there before. Models that reach no such writer, or whose writers can not be determined, are
+   * read in full without a snapshot.
+   *
+   * @see DeltaSnapshots
+   */
+  protected Model withDelta(String source, Model model) {
+    if (!DeltaSnapshots.isEnabled()) {
+      return model;
+    }
+    final Optional<SortedSet<String>> targets = getWriteTargets(getId());
+    if (targets.isEmpty() || targets.get().isEmpty()) {
+      return model;
+    }
+    return DeltaSnapshots.diff(FaradayCageContext.getRunId(), source + " -> " + String.join(" ", targets.get()), model);
+  }
+
+  /**
+   * Returns the endpoints and graphs of all {@link SparqlModelWriter}s downstream of {@code node}.
+   */
+  static Optional<SortedSet<String>> getWriteTargets(Resource node) {
+    final SortedSet<String> targets = new TreeSet<>();
+    final Set<Resource> visited = new HashSet<>();
+    final Deque<Resource> queue = new ArrayDeque<>(List.of(node));
+    while (!queue.isEmpty()) {
+      final Resource current = queue.poll();
+      if (!visited.add(current)) {
+        continue;
+      }
+      final Optional<List<Resource>> consumers = ExecutionGraphTopology.getConsumers(current);
+      if (consumers.isEmpty()) {
+        return Optional.empty();
+      }
+      for (Resource consumer : consumers.get()) {
+        if (consumer.hasProperty(RDF.type, SPARQL_MODEL_WRITER)) {
+          targets.add(getWriteTarget(consumer));
+        } else {
+          queue.add(consumer);
+        }
+      }
+    }
+    return Optional.of(targets);
+  }
+
+  private static String getWriteTarget(Resource writer) {
+    final String endpoint = Optional.ofNullable(writer.getProperty(SparqlModelWriter.ENDPOINT))
+      .map(Statement::getObject).map(RDFNode::toString).orElse("");
+    final String graphName = Optional.ofNullable(writer.getProperty(SparqlModelWriter.GRAPH_NAME))
+      .map(Statement::getObject).map(RDFNode::toString).orElse(SparqlModelWriter.DEFAULT_GRAPH);
+    return "<" + endpoint + "> <" + graphName + ">";
+  }
+
 }
@@ -0,0 +1,138 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.io;
+
+import org.aksw.deer.util.DeltaGraph;
+import org.aksw.deer.util.ModelFingerprint;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Snapshots of the models read by {@link ModelReader}s for delta execution.
+ * <p>
+ * If delta execution is enabled through the system property {@code deer.delta}, readers pass
+ * their models through {@link #diff(String, String, Model)}, which attaches the changes relative
+ * to the snapshot of the previous run as a {@link DeltaGraph}. The model is staged as the next
+ * snapshot right away, but only replaces the previous one once its run has succeeded and
+ * {@link #commit(String)} was called, so that failed runs are repeated from the same baseline.
+ * Snapshots are stored as RDF Thrift files in the directory given by the system property
+ * {@code deer.delta.snapshotDirectory}, which defaults to {@code deer-snapshots} in the
+ * temporary directory.
+ */
+public final class DeltaSnapshots {
+
+  private static final Logger logger = LoggerFactory.getLogger(DeltaSnapshots.class);
+
+  public static final String ENABLED_PROPERTY = "deer.delta";
+
+  private static final Path directory = Paths.get(System.getProperty("deer.delta.snapshotDirectory",
+    Paths.get(System.getProperty("java.io.tmpdir"), "deer-snapshots").toString()));
+
+  private static final Map<String, List<Path[]>> staged = new ConcurrentHashMap<>();
+
+  private DeltaSnapshots() {
+
+  }
+
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(ENABLED_PROPERTY);
+  }
+
+  /**
+   * Stages {@code current} as the next snapshot for {@code key} in run {@code runId}.
+   *
+   * @return {@code current} carrying its changes relative to the last committed snapshot for
+   * {@code key}, or {@code current} itself if there is no such snapshot or delta execution is disabled
+   * or {@code runId} is null
+   */
+  public static Model diff(String runId, String key, Model current) {
+    if (!isEnabled() || runId == null) {
+      return current;
+    }
+    final Path snapshot = directory.resolve(ModelFingerprint.sha256(key) + ".rt");
+    try {
+      Files.createDirectories(directory);
+      final Path next = Files.createTempFile(directory, ".staged-", ".rt");
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(next), 1 << 16)) {
+        RDFDataMgr.write(out, current, Lang.RDFTHRIFT);
+      }
+      staged.computeIfAbsent(runId, k -> new CopyOnWriteArrayList<>()).add(new Path[]{next, snapshot});
+      if (!Files.isRegularFile(snapshot)) {
+        logger.info("No snapshot of {} yet, it is read in full.", key);
+        return current;
+      }
+      final Model previous = ModelFactory.createDefaultModel();
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16)) {
+        RDFDataMgr.read(previous, in, Lang.RDFTHRIFT);
+      }
+      final Model delta = DeltaGraph.diff(previous.getGraph(), current.getGraph());
+      DeltaGraph.of(delta).ifPresent(d ->
+        logger.info("{} changed by {} added and {} removed triples.", key, d.getAdded().size(), d.getRemoved().size()));
+      return delta;
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not compute the delta of {}, it is read in full.", key, e);
+      return current;
+    }
+  }
+
+  /**
+   * Makes the snapshots staged in run {@code runId} the baseline of subsequent runs.
+   */
+  public static void commit(String runId) {
+    final List<Path[]> snapshots = staged.remove(runId);
+    if (snapshots == null) {
+      return;
+    }
+    for (Path[] snapshot : snapshots) {
+      try {
+        Files.move(snapshot[0], snapshot[1], StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        logger.warn("Could not commit snapshot {}", snapshot[1], e);
+      }
+    }
+  }
+
+  /**
+   * Drops the snapshots staged in run {@code runId}, keeping the previous baseline.
+   */
+  public static void discard(String runId) {
+    final List<Path[]> snapshots = staged.remove(runId);
+    if (snapshots == null) {
+      return;
+    }
+    for (Path[] snapshot : snapshots) {
+      try {
+        Files.deleteIfExists(snapshot[0]);
+      } catch (IOException e) {
+        logger.warn("Could not delete staged snapshot {}", snapshot[0], e);
+      }
+    }
+  }
+
+}
@@ -17,11 +17,15 @@
  */
 package org.aksw.deer.io;
 
+import org.aksw.deer.util.StreamingGraph;
+import org.aksw.deer.util.TripleStreams;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ValidatableParameterMap;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDFBase;
 import org.pf4j.Extension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -84,10 +88,33 @@ public class FileModelReader extends AbstractModelReader {
       }
     }
     final long startTime = System.currentTimeMillis();
+    final Optional<Model> preloaded = PreloadedModels.lookup(locator);
+    if (preloaded.isPresent()) {
+      logger.info("Using preloaded model for {}, waited {}ms.", locator,
+        (System.currentTimeMillis() - startTime));
+      return List.of(withDelta(locator, preloaded.get()));
+    }
+    final Optional<Model> cached = ParsedInputCache.get(locator, Lang.TTL);
+    if (cached.isPresent()) {
+      logger.info("Loading {} from the input cache is done in {}ms.", locator,
+        (System.currentTimeMillis() - startTime));
+      return List.of(withDelta(locator, cached.get()));
+    }
+    if (!DeltaSnapshots.isEnabled() && TripleStreams.isEnabled() && TripleStreams.hasStreamingConsumer(getId())) {
+      // deltas need the whole model, so only plain reads are streamed
+      final String streamedLocator = locator;
+      logger.info("Streaming {} into its consumer.", locator);
+      return List.of(StreamingGraph.produce(sink -> RDFDataMgr.parse(new StreamRDFBase() {
+        @Override
+        public void triple(Triple triple) {
+          sink.accept(triple);
+        }
+      }, streamedLocator, Lang.TTL)));
+    }
     Model result = ModelFactory.createDefaultModel();
     RDFDataMgr.read(result, locator, Lang.TTL);
     logger.info("Loading {} is done in {}ms.", locator,
       (System.currentTimeMillis() - startTime));
-    return List.of(result);
+    return List.of(withDelta(locator, result));
   }
 }
@@ -17,6 +17,7 @@
  */
 package org.aksw.deer.io;
 
+import org.aksw.deer.util.TripleStreams;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ExecutionNode;
 import org.aksw.faraday_cage.engine.ValidatableParameterMap;
@@ -24,13 +25,14 @@ import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.pf4j.Extension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.*;
 import java.util.List;
 
 /**
@@ -76,7 +78,11 @@ public class FileModelWriter extends AbstractModelWriter {
       if (writingDir != null && !writingDir.exists()) {
         writingDir.mkdirs();
       }
-      model.write(new FileWriter(outputFile), outputFormat);
+      if (TripleStreams.isPending(model) && TripleStreams.isStreamingFormat(outputFormat)) {
+        writeStream(model, outputFile, outputFormat);
+      } else {
+        model.write(new FileWriter(outputFile), outputFormat);
+      }
       logger.info("Saving dataset done in " + (System.currentTimeMillis() - starTime) + "ms.");
     } catch (IOException e) {
       throw new RuntimeException("Encountered problem while trying to write dataset to " +
@@ -85,4 +91,17 @@ public class FileModelWriter extends AbstractModelWriter {
     return model;
   }
 
+  /**
+   * Writes the triples of a pending stream as they arrive, without buffering them.
+   * Prefixes are not preserved, since the supported formats do not use them anyway.
+   */
+  private void writeStream(Model model, String outputFile, String outputFormat) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile), 1 << 16)) {
+      final StreamRDF stream = StreamRDFWriter.getWriterStream(out, RDFLanguages.nameToLang(outputFormat));
+      stream.start();
+      TripleStreams.forEach(model.getGraph(), stream::triple);
+      stream.finish();
+    }
+  }
+
 }
@@ -0,0 +1,219 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.io;
+
+import org.aksw.deer.DeerMetrics;
+import org.aksw.deer.util.LazyUnionGraph;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of models parsed by {@link FileModelReader}, shared by all runs in a JVM.
+ * <p>
+ * Entries are keyed by the absolute path of the input file and are only reused as long as
+ * the file's size and modification time are unchanged. Every lookup yields a copy-on-write view
+ * of the cached model, so runs can never observe each other's modifications.
+ * The cache is disabled by default, it is enabled with a capacity through
+ * the system property {@code deer.inputCacheSize} or {@link #enable(int)}.
+ * Independently of the number of entries, the total size of the cached input files is bounded by
+ * the system property {@code deer.inputCacheMaxBytes} (default: a fortieth of the maximum heap, as
+ * parsed models take about ten times the size of their files). Larger files are never cached.
+ */
+public final class ParsedInputCache {
+
+  private static final LongAdder hits = new LongAdder();
+  private static final LongAdder misses = new LongAdder();
+
+  private static volatile int capacity = Integer.getInteger("deer.inputCacheSize", 0);
+
+  private static volatile long maxBytes = Long.getLong("deer.inputCacheMaxBytes", Runtime.getRuntime().maxMemory() / 40);
+
+  // guarded by entries
+  private static final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private static long cachedBytes = 0;
+
+  static {
+    DeerMetrics.counter("deer_cache_requests_total", "Lookups in the caches of DEER nodes.",
+      hits::sum, "cache", "input", "result", "hit");
+    DeerMetrics.counter("deer_cache_requests_total", "Lookups in the caches of DEER nodes.",
+      misses::sum, "cache", "input", "result", "miss");
+  }
+
+  private ParsedInputCache() {
+
+  }
+
+  /**
+   * Enables the cache, keeping at most {@code capacity} parsed inputs.
+   */
+  public static void enable(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Capacity must not be negative, but was " + capacity);
+    }
+    ParsedInputCache.capacity = capacity;
+    synchronized (entries) {
+      evict();
+    }
+  }
+
+  /**
+   * Enables the cache, keeping at most {@code capacity} parsed inputs whose files together
+   * have at most {@code maxBytes} bytes.
+   */
+  public static void enable(int capacity, long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Maximum size must not be negative, but was " + maxBytes);
+    }
+    ParsedInputCache.maxBytes = maxBytes;
+    enable(capacity);
+  }
+
+  public static boolean isEnabled() {
+    return capacity > 0;
+  }
+
+  /**
+   * Returns the model parsed from the local file at {@code locator}, parsing it only if it is
+   * not cached or has changed since.
+   *
+   * @return the model or {@code Optional.empty()} if the cache is disabled or {@code locator}
+   * does not denote a local file
+   */
+  public static Optional<Model> get(String locator, Lang hint) {
+    if (!isEnabled()) {
+      return Optional.empty();
+    }
+    final Path file;
+    final long size;
+    final long lastModified;
+    try {
+      file = Paths.get(locator).toAbsolutePath().normalize();
+      if (!Files.isRegularFile(file)) {
+        return Optional.empty();
+      }
+      size = Files.size(file);
+      lastModified = Files.getLastModifiedTime(file).toMillis();
+    } catch (InvalidPathException | IOException e) {
+      return Optional.empty();
+    }
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(file);
+    }
+    if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+      hits.increment();
+    } else {
+      // parse outside of the lock, a concurrent miss on the same file just parses twice
+      misses.increment();
+      Model model = ModelFactory.createDefaultModel();
+      RDFDataMgr.read(model, file.toString(), hint);
+      entry = new Entry(model, size, lastModified);
+      if (size > maxBytes) {
+        invalidate(file);
+      } else {
+        synchronized (entries) {
+          remove(file);
+          entries.put(file, entry);
+          cachedBytes += size;
+          evict();
+        }
+      }
+    }
+    return Optional.of(LazyUnionGraph.union(List.of(entry.model), false));
+  }
+
+  /**
+   * Drops the cached model of {@code file}, if any.
+   */
+  public static void invalidate(Path file) {
+    synchronized (entries) {
+      remove(file.toAbsolutePath().normalize());
+    }
+  }
+
+  public static void clear() {
+    synchronized (entries) {
+      entries.clear();
+      cachedBytes = 0;
+    }
+  }
+
+  public static long getHits() {
+    return hits.sum();
+  }
+
+  public static long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the total size of the cached input files in bytes
+   */
+  public static long getCachedBytes() {
+    synchronized (entries) {
+      return cachedBytes;
+    }
+  }
+
+  private static void remove(Path file) {
+    final Entry removed = entries.remove(file);
+    if (removed != null) {
+      cachedBytes -= removed.size;
+    }
+  }
+
+  /**
+   * Drops the least recently used entries until both bounds are met, must hold the lock on entries.
+   */
+  private static void evict() {
+    final Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext() && (entries.size() > capacity || cachedBytes > maxBytes)) {
+      cachedBytes -= it.next().size;
+      it.remove();
+    }
+  }
+
+  private static class Entry {
+
+    private final Model model;
+    private final long size;
+    private final long lastModified;
+
+    private Entry(Model model, long size, long lastModified) {
+      this.model = model;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+  }
+
+}
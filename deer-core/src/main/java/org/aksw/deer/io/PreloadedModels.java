@@ -0,0 +1,93 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.io;
+
+import org.aksw.deer.util.LazyUnionGraph;
+import org.apache.jena.rdf.model.Model;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of models that are parsed ahead of execution, e.g. while they are still being
+ * uploaded to the DEER server, keyed by the file they would otherwise be read from.
+ * <p>
+ * {@link FileModelReader} consults this registry before touching the file system.
+ * Every lookup yields a copy-on-write view of the registered model, so that several readers
+ * of the same file can never observe each other's modifications.
+ */
+public final class PreloadedModels {
+
+  private static final Map<Path, CompletableFuture<Model>> models = new ConcurrentHashMap<>();
+
+  private PreloadedModels() {
+
+  }
+
+  /**
+   * Registers a model, possibly still being parsed, as the content of {@code file}.
+   */
+  public static void register(Path file, CompletableFuture<Model> model) {
+    models.put(normalize(file), model);
+  }
+
+  /**
+   * Returns the model registered for the file at {@code locator}, waiting for it to be parsed.
+   *
+   * @throws IllegalStateException if parsing the registered model failed
+   */
+  public static Optional<Model> lookup(String locator) {
+    if (models.isEmpty()) {
+      return Optional.empty();
+    }
+    final CompletableFuture<Model> model;
+    try {
+      model = models.get(normalize(Paths.get(locator)));
+    } catch (InvalidPathException e) {
+      return Optional.empty();
+    }
+    if (model == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(LazyUnionGraph.union(List.of(model.join()), false));
+    } catch (CompletionException e) {
+      throw new IllegalStateException("Could not parse preloaded model for " + locator, e.getCause());
+    }
+  }
+
+  /**
+   * Drops all models registered for files in {@code directory} or its subdirectories.
+   */
+  public static void releaseAll(Path directory) {
+    final Path prefix = normalize(directory);
+    models.keySet().removeIf(file -> file.startsWith(prefix));
+  }
+
+  private static Path normalize(Path file) {
+    return file.toAbsolutePath().normalize();
+  }
+
+}
@@ -109,6 +109,6 @@ public class SparqlModelReader extends AbstractModelReader {
     }
     logger.info("Dataset reading is done in {}ms, {} triples found.",
       (System.currentTimeMillis() - startTime), result.size());
-    return result;
+    return withDelta(fromEndpoint + " " + sparqlQueryString, result);
   }
 }
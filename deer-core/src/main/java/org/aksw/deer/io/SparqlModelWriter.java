@@ -17,6 +17,7 @@
  */
 package org.aksw.deer.io;
 
+import org.aksw.deer.util.DeltaGraph;
 import org.aksw.deer.vocabulary.DEER;
 import org.aksw.faraday_cage.engine.ExecutionNode;
 import org.aksw.faraday_cage.engine.ValidatableParameterMap;
@@ -26,6 +27,9 @@ import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.jena.graph.Factory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.rdfconnection.RDFConnection;
 import org.apache.jena.rdfconnection.RDFConnectionRemote;
@@ -37,10 +41,13 @@ import org.slf4j.LoggerFactory;
 import java.io.FileInputStream;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  *
@@ -120,7 +127,10 @@ public class SparqlModelWriter extends AbstractModelWriter {
 
     getConnection(endPoint.get());
 
-    if (writeType.get().equals(SPARQL)) {
+    final Optional<String> deltaUpdate = deltaUpdate(model, graphName.get());
+    if (deltaUpdate.isPresent()) {
+      deltaWrite(DeltaGraph.of(model).orElseThrow(), deltaUpdate.get(), endPoint.get(), graphName.get());
+    } else if (writeType.get().equals(SPARQL)) {
       sparqlWrite(model, endPoint.get(), writeOp.get(), graphName.get());
     } else if (writeType.get().equals(GRAPH_STORE_HTTP)) {
       httpWrite(model, endPoint.get(), writeOp.get(), graphName.get());
@@ -168,7 +178,7 @@ public class SparqlModelWriter extends AbstractModelWriter {
     connection = builder.build();
   }
 
-  private String getGraphData(Model model) {
+  private static String getGraphData(Model model) {
     Writer writer = new StringWriter();
     model.write(writer, "NT");
     return writer.toString();
@@ -210,6 +220,67 @@ public class SparqlModelWriter extends AbstractModelWriter {
     }
   }
 
+  /**
+   * Blank nodes can neither be deleted through DELETE DATA nor be matched across runs,
+   * so deltas mentioning them are not applied.
+   */
+  private static boolean isGround(DeltaGraph delta) {
+    final boolean ground = Stream.concat(delta.getAdded().stream(), delta.getRemoved().stream())
+      .noneMatch(t -> t.getSubject().isBlank() || t.getObject().isBlank());
+    if (!ground) {
+      logger.info("Delta of the model contains blank nodes, writing the whole model instead.");
+    }
+    return ground;
+  }
+
+  /**
+   * Returns the single SPARQL UPDATE request applying the changes carried by {@code model} to
+   * {@code graphName}, if {@code model} carries a delta without blank nodes. The request is empty
+   * if nothing changed.
+   */
+  static Optional<String> deltaUpdate(Model model, String graphName) {
+    return DeltaGraph.of(model).filter(SparqlModelWriter::isGround).map(delta -> {
+      final List<String> operations = new ArrayList<>();
+      if (!delta.getRemoved().isEmpty()) {
+        operations.add(dataOperation("DELETE", delta.getRemoved(), graphName));
+      }
+      if (!delta.getAdded().isEmpty()) {
+        operations.add(dataOperation("INSERT", delta.getAdded(), graphName));
+      }
+      return String.join(" ;\n", operations);
+    });
+  }
+
+  /**
+   * Applies the changes carried by a {@link DeltaGraph} through a single SPARQL UPDATE request,
+   * regardless of the writing protocol and operation type. This assumes that the graph at the
+   * endpoint holds the model written by the previous run.
+   */
+  private void deltaWrite(DeltaGraph delta, String update, String endPoint, String graphName) {
+    try {
+      logger.info("Writing the delta of the model with [pure SPARQL UPDATE, {} added and {} removed triples, "
+        + "Graph name: {}] to the endpoint: {}", delta.getAdded().size(), delta.getRemoved().size(), graphName, endPoint);
+      if (!update.isEmpty()) {
+        connection.update(update);
+      }
+      connection.commit();
+      connection.close();
+    } catch (Exception e) {
+      throw new RuntimeException("Encountered problem while trying to write dataset to " +
+        endPoint, e);
+    }
+  }
+
+  private static String dataOperation(String operation, Set<Triple> triples, String graphName) {
+    final Graph graph = Factory.createDefaultGraph();
+    triples.forEach(graph::add);
+    final String data = getGraphData(ModelFactory.createModelForGraph(graph));
+    if (graphName.equals(DEFAULT_GRAPH) || graphName.equals("")) {
+      return operation + " DATA {" + data + "}";
+    }
+    return operation + " DATA { GRAPH <" + graphName + "> {" + data + "} }";
+  }
+
   /**
    * Implementation of SparQL Writer using Graph-Store HTTP protocol.
    */
@@ -21,6 +21,7 @@ import org.aksw.deer.enrichments.*;
 import org.aksw.deer.learning.Learnable;
 import org.aksw.deer.learning.RandomUtil;
 import org.aksw.deer.learning.SelfConfigurable;
+import org.aksw.deer.vocabulary.DEER;
 import org.aksw.deer.vocabulary.DEERA;
 import org.aksw.faraday_cage.engine.ExecutionNode;
 import org.aksw.faraday_cage.engine.Parameterized;
@@ -33,33 +34,51 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- *
+ * Creates random enrichment operators for the genetic learning algorithm.
+ * <p>
+ * Plugin discovery and the degree bounds of the allowed operators are determined on first use
+ * and cached, afterwards only the chosen operators are instantiated.
  */
 public class RandomOperatorFactory {
 
-
-  private static PluginFactory<EnrichmentOperator> factory = new PluginFactory<>(EnrichmentOperator.class, new DefaultPluginManager(), FCAGE.ExecutionNode);
+  private static PluginFactory<EnrichmentOperator> factory = null;
 
   private static Set<Resource> allowedTypes = new HashSet<>(List.of(
-    new LinkingEnrichmentOperator().getType(),
-    new NEREnrichmentOperator().getType(),
-    new PredicateConformationEnrichmentOperator().getType(),
-    new AuthorityConformationEnrichmentOperator().getType(),
-    new FilterEnrichmentOperator().getType(),
-    new MergeEnrichmentOperator().getType(),
-    new DereferencingEnrichmentOperator().getType()));
+    typeOf(LinkingEnrichmentOperator.class),
+    typeOf(NEREnrichmentOperator.class),
+    typeOf(PredicateConformationEnrichmentOperator.class),
+    typeOf(AuthorityConformationEnrichmentOperator.class),
+    typeOf(FilterEnrichmentOperator.class),
+    typeOf(MergeEnrichmentOperator.class),
+    typeOf(DereferencingEnrichmentOperator.class)));
 
   private static List<Resource> availableOps;
 
+  private static Map<Resource, ExecutionNode.DegreeBounds> degreeBoundsMap;
+
   private static int maxArity = 0;
 
   private static Map<Integer, List<Resource>> arityOpsMap;
 
+  private static volatile boolean initialized = false;
+
   private RandomOperatorFactory() { }
 
-  private static void setup() {
+  /**
+   * Enrichment operators are typed by their simple class name, see {@link AbstractEnrichmentOperator#getType()}.
+   */
+  private static Resource typeOf(Class<? extends EnrichmentOperator> clazz) {
+    return DEER.resource(clazz.getSimpleName());
+  }
+
+  private static synchronized void setup() {
+    if (factory == null) {
+      factory = new PluginFactory<>(EnrichmentOperator.class, new DefaultPluginManager(), FCAGE.ExecutionNode);
+    }
     arityOpsMap = new HashMap<>();
     availableOps = new ArrayList<>();
+    degreeBoundsMap = new HashMap<>();
+    maxArity = 0;
     factory.listAvailable().stream()
       .filter(allowedTypes::contains)
       .map(factory::getImplementationOf)
@@ -68,6 +87,7 @@ public class RandomOperatorFactory {
       .forEach(op -> {
         availableOps.add(op.getType());
         ExecutionNode.DegreeBounds degreeBounds = ((Learnable) op).getLearnableDegreeBounds();
+        degreeBoundsMap.put(op.getType(), degreeBounds);
         for (int i = degreeBounds.minIn(); i <= degreeBounds.maxIn(); i++) {
           if (i > maxArity) {
             maxArity = i;
@@ -78,21 +98,31 @@ public class RandomOperatorFactory {
           arityOpsMap.get(i).add(op.getType());
         }
       });
+    initialized = true;
   }
 
-  static { setup(); }
+  private static void ensureSetup() {
+    if (!initialized) {
+      synchronized (RandomOperatorFactory.class) {
+        if (!initialized) {
+          setup();
+        }
+      }
+    }
+  }
 
-  public static void setAllowedTypes(Set<Resource> allowedTypes) {
+  public static synchronized void setAllowedTypes(Set<Resource> allowedTypes) {
     RandomOperatorFactory.allowedTypes = allowedTypes;
     setup();
   }
 
-  public static void setFactory(PluginFactory<EnrichmentOperator> factory) {
+  public static synchronized void setFactory(PluginFactory<EnrichmentOperator> factory) {
     RandomOperatorFactory.factory = factory;
     setup();
   }
 
   public static List<EnrichmentOperator> getAll() {
+    ensureSetup();
     return allowedTypes.stream().map(factory::getImplementationOf)
       .peek(op -> op.initDegrees(((Learnable) op).getLearnableDegreeBounds().minIn(), 1))
       .peek(op -> op.initPluginId(DEERA.forExecutionNode(op)))
@@ -100,18 +130,21 @@ public class RandomOperatorFactory {
   }
 
   public static EnrichmentOperator getForMaxArity(int arity) {
+    ensureSetup();
     if (!arityOpsMap.containsKey(arity)) {
       throw new IllegalArgumentException("There are no available operators with in degree = " + arity + " and out degree = 1");
     }
-    EnrichmentOperator op;
+    Resource type;
     do {
-      op = factory.getImplementationOf(availableOps.get(RandomUtil.get(availableOps.size())));
-    } while (arity < ((Learnable) op).getLearnableDegreeBounds().minIn());
+      type = availableOps.get(RandomUtil.get(availableOps.size()));
+    } while (arity < degreeBoundsMap.get(type).minIn());
+    EnrichmentOperator op = factory.getImplementationOf(type);
     op.initPluginId(DEERA.forExecutionNode(op));
     return op;
   }
 
   public static EnrichmentOperator getForArity(int arity) {
+    ensureSetup();
     if (!arityOpsMap.containsKey(arity)) {
       throw new IllegalArgumentException("There are no available operators with in degree = " + arity + " and out degree = 1");
     }
@@ -123,14 +156,15 @@ public class RandomOperatorFactory {
   }
 
   public static EnrichmentOperator reproduce(EnrichmentOperator op) {
+    ensureSetup();
     EnrichmentOperator clone = factory.getImplementationOf(op.getType());
     clone.initPluginId(op.getId());
     return clone;
   }
 
   public static int getMaxArity() {
+    ensureSetup();
     return maxArity;
   }
 
-
 }
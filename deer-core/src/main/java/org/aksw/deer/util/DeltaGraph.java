@@ -0,0 +1,164 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.Factory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A graph together with its changes relative to a previous snapshot of it.
+ * <p>
+ * Reads are answered from the current graph. Modifications are applied to the current graph and
+ * keep the delta up to date, {@link #rollback()} restores the previous snapshot.
+ * Operators whose output is the union of their outputs for the single triples of their inputs
+ * use {@link #propagate(List, Function)} to carry the deltas of their inputs over to their outputs.
+ * All other operators must receive their inputs through {@link #strip(List)}, since their changes
+ * would be journaled relative to this run's input instead of the previous run's output.
+ */
+public class DeltaGraph extends JournalingGraph {
+
+  public DeltaGraph(Graph current, Set<Triple> added, Set<Triple> removed) {
+    super(current, added, removed);
+  }
+
+  /**
+   * Returns a model of {@code current} carrying its changes relative to {@code previous}.
+   */
+  public static Model diff(Graph previous, Graph current) {
+    final Set<Triple> added = new LinkedHashSet<>();
+    final Set<Triple> removed = new LinkedHashSet<>();
+    current.find(Node.ANY, Node.ANY, Node.ANY).filterDrop(previous::contains).forEachRemaining(added::add);
+    previous.find(Node.ANY, Node.ANY, Node.ANY).filterDrop(current::contains).forEachRemaining(removed::add);
+    return ModelFactory.createModelForGraph(new DeltaGraph(current, added, removed));
+  }
+
+  /**
+   * Returns the delta carried by {@code model}, if any.
+   */
+  public static Optional<DeltaGraph> of(Model model) {
+    if (model != null && model.getGraph() instanceof DeltaGraph) {
+      return Optional.of((DeltaGraph) model.getGraph());
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Returns {@code models} with every model carrying a delta replaced by a plain model of its graph.
+   */
+  public static List<Model> strip(List<Model> models) {
+    if (models == null || models.stream().noneMatch(model -> of(model).isPresent())) {
+      return models;
+    }
+    final List<Model> result = new ArrayList<>(models.size());
+    for (Model model : models) {
+      result.add(of(model).map(delta -> ModelFactory.createModelForGraph(delta.getBase())).orElse(model));
+    }
+    return result;
+  }
+
+  /**
+   * Returns a deep copy of {@code model} that carries the same delta as {@code model}, if any.
+   */
+  public static Model copyOf(Model model) {
+    final Model copy = ModelFactory.createDefaultModel().add(model);
+    return of(model)
+      .map(delta -> ModelFactory.createModelForGraph(new DeltaGraph(copy.getGraph(), delta.getAdded(), delta.getRemoved())))
+      .orElse(copy);
+  }
+
+  /**
+   * Applies {@code apply} to {@code in} and, if every input carries a delta, derives the deltas
+   * of the outputs by additionally applying {@code apply} to the added and to the removed triples
+   * of the inputs.
+   * <p>
+   * This is only correct if {@code apply} maps every triple independently of the others.
+   * Then a triple is removed from an output if it was derived from removed triples and is not part
+   * of the output anymore. A triple is added to an output if it was derived from added triples and is
+   * part of the output, which includes triples that were part of it before. This is harmless, since
+   * adding a triple twice is a no-op for consumers of deltas.
+   */
+  public static List<Model> propagate(List<Model> in, Function<List<Model>, List<Model>> apply) {
+    final List<DeltaGraph> deltas = new ArrayList<>();
+    for (Model model : in) {
+      Optional<DeltaGraph> delta = of(model);
+      if (delta.isEmpty()) {
+        return apply.apply(in);
+      }
+      deltas.add(delta.get());
+    }
+    // snapshot the deltas first, apply may modify its inputs in place
+    final List<Model> added = new ArrayList<>();
+    final List<Model> removed = new ArrayList<>();
+    for (DeltaGraph delta : deltas) {
+      added.add(toModel(delta.getAdded()));
+      removed.add(toModel(delta.getRemoved()));
+    }
+    final List<Model> out = apply.apply(in);
+    final List<Model> addedImages = imagesOf(added, apply, out.size());
+    final List<Model> removedImages = imagesOf(removed, apply, out.size());
+    if (addedImages.size() != out.size() || removedImages.size() != out.size()) {
+      return out;
+    }
+    final List<Model> result = new ArrayList<>(out.size());
+    for (int i = 0; i < out.size(); i++) {
+      final Model model = out.get(i);
+      if (model == null || addedImages.get(i) == null || removedImages.get(i) == null) {
+        result.add(model);
+        continue;
+      }
+      final Graph graph = model.getGraph();
+      final Set<Triple> outAdded = new LinkedHashSet<>();
+      final Set<Triple> outRemoved = new LinkedHashSet<>();
+      addedImages.get(i).getGraph().find(Node.ANY, Node.ANY, Node.ANY)
+        .filterKeep(graph::contains).forEachRemaining(outAdded::add);
+      removedImages.get(i).getGraph().find(Node.ANY, Node.ANY, Node.ANY)
+        .filterDrop(graph::contains).forEachRemaining(outRemoved::add);
+      result.add(ModelFactory.createModelForGraph(new DeltaGraph(graph, outAdded, outRemoved)));
+    }
+    return result;
+  }
+
+  private static List<Model> imagesOf(List<Model> in, Function<List<Model>, List<Model>> apply, int outputs) {
+    if (in.stream().allMatch(Model::isEmpty)) {
+      final List<Model> images = new ArrayList<>(outputs);
+      for (int i = 0; i < outputs; i++) {
+        images.add(ModelFactory.createDefaultModel());
+      }
+      return images;
+    }
+    return apply.apply(in);
+  }
+
+  private static Model toModel(Set<Triple> triples) {
+    final Graph graph = Factory.createDefaultGraph();
+    triples.forEach(graph::add);
+    return ModelFactory.createModelForGraph(graph);
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bounded on-disk cache of lists of models, keyed by strings of file name safe characters.
+ * <p>
+ * Every entry is a directory holding one RDF Thrift file per model and a marker file listing
+ * which of the models were {@code null}. Entries are written to a temporary directory and moved
+ * into place atomically, so concurrent writers and readers never observe partial entries.
+ * Once the total size exceeds {@code maxBytes}, the least recently used entries are deleted.
+ */
+public class DiskModelCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(DiskModelCache.class);
+
+  private static final String MARKER = "entry";
+
+  private final Path directory;
+  private final long maxBytes;
+
+  public DiskModelCache(Path directory, long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Maximum size must not be negative, but was " + maxBytes);
+    }
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the models stored for {@code key}, or {@code Optional.empty()} if there are none.
+   */
+  public Optional<List<Model>> get(String key) {
+    final Path entry = directory.resolve(checkKey(key));
+    final Path marker = entry.resolve(MARKER);
+    if (!Files.isRegularFile(marker)) {
+      return Optional.empty();
+    }
+    try {
+      final List<String> slots = Files.readAllLines(marker, StandardCharsets.UTF_8);
+      final List<Model> models = new ArrayList<>(slots.size());
+      for (int i = 0; i < slots.size(); i++) {
+        if (slots.get(i).equals("null")) {
+          models.add(null);
+        } else {
+          Model model = ModelFactory.createDefaultModel();
+          try (InputStream in = new BufferedInputStream(Files.newInputStream(entry.resolve(i + ".rt")), 1 << 16)) {
+            RDFDataMgr.read(model, in, Lang.RDFTHRIFT);
+          }
+          models.add(model);
+        }
+      }
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      return Optional.of(models);
+    } catch (IOException | RuntimeException e) {
+      // entries may vanish through concurrent eviction, which is a plain miss
+      logger.debug("Could not read cache entry {}", entry, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Stores {@code models} for {@code key}, unless an entry for {@code key} already exists.
+   */
+  public void put(String key, List<Model> models) {
+    final Path entry = directory.resolve(checkKey(key));
+    if (Files.isDirectory(entry)) {
+      return;
+    }
+    Path temporary = null;
+    try {
+      Files.createDirectories(directory);
+      temporary = Files.createTempDirectory(directory, ".tmp-");
+      final List<String> slots = new ArrayList<>(models.size());
+      for (int i = 0; i < models.size(); i++) {
+        final Model model = models.get(i);
+        if (model == null) {
+          slots.add("null");
+          continue;
+        }
+        slots.add("model");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary.resolve(i + ".rt")), 1 << 16)) {
+          RDFDataMgr.write(out, model, Lang.RDFTHRIFT);
+        }
+      }
+      Files.write(temporary.resolve(MARKER), slots, StandardCharsets.UTF_8);
+      Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+      temporary = null;
+    } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+      // a concurrent writer was faster
+    } catch (IOException e) {
+      logger.warn("Could not write cache entry {}", entry, e);
+    } finally {
+      if (temporary != null) {
+        delete(temporary);
+      }
+    }
+    evict();
+  }
+
+  /**
+   * Returns the total size of all entries in bytes.
+   */
+  public long size() {
+    return listEntries().stream().mapToLong(DiskModelCache::sizeOf).sum();
+  }
+
+  private synchronized void evict() {
+    final List<Path> entries = listEntries();
+    final Map<Path, Long> sizes = entries.stream().collect(Collectors.toMap(e -> e, DiskModelCache::sizeOf));
+    long total = sizes.values().stream().mapToLong(Long::longValue).sum();
+    if (total <= maxBytes) {
+      return;
+    }
+    entries.sort(Comparator.comparing(DiskModelCache::lastModified));
+    for (Path entry : entries) {
+      if (total <= maxBytes) {
+        break;
+      }
+      delete(entry);
+      total -= sizes.get(entry);
+      logger.debug("Evicted cache entry {}", entry);
+    }
+  }
+
+  private List<Path> listEntries() {
+    if (!Files.isDirectory(directory)) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(Files::isDirectory)
+        .filter(p -> !p.getFileName().toString().startsWith("."))
+        .collect(Collectors.toList());
+    } catch (IOException e) {
+      logger.warn("Could not list cache entries in {}", directory, e);
+      return new ArrayList<>();
+    }
+  }
+
+  private static long sizeOf(Path entry) {
+    try (Stream<Path> files = Files.list(entry)) {
+      return files.mapToLong(file -> file.toFile().length()).sum();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static FileTime lastModified(Path entry) {
+    try {
+      return Files.getLastModifiedTime(entry);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  private static void delete(Path entry) {
+    try (Stream<Path> files = Files.walk(entry)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+    } catch (IOException e) {
+      logger.warn("Could not delete {}", entry, e);
+    }
+  }
+
+  private static String checkKey(String key) {
+    if (key.isEmpty() || key.startsWith(".") || !key.matches("[\\w.-]+")) {
+      throw new IllegalArgumentException("Invalid cache key " + key);
+    }
+    return key;
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.aksw.deer.vocabulary.DEER;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.*;
+
+/**
+ * Read-only view on the topology of a DEER configuration graph.
+ * <p>
+ * Edges are declared through {@code fcage:hasInput} and {@code fcage:hasOutput}, each of which
+ * may hold a single node or an RDF list of nodes, and an edge may be declared from either side
+ * or from both. All queries answer with {@link Optional#empty()} whenever the declarations
+ * use a form this class does not understand, so that callers can fall back to safe behaviour.
+ */
+public class ExecutionGraphTopology {
+
+  public static final String FCAGE_NS = "https://w3id.org/fcage/";
+
+  public static final Property HAS_INPUT = ResourceFactory.createProperty(FCAGE_NS + "hasInput");
+
+  public static final Property HAS_OUTPUT = ResourceFactory.createProperty(FCAGE_NS + "hasOutput");
+
+  public static final Property DECORATED_BY = ResourceFactory.createProperty(FCAGE_NS + "decoratedBy");
+
+  // wrappers that neither keep nor inspect the contents of the models passing through them
+  private static final Set<Resource> TRANSPARENT_WRAPPERS = Set.of(DEER.resource("InstrumentationWrapper"));
+
+  /**
+   * Returns the execution nodes of {@code configuration}, i.e. all resources declaring or
+   * referenced by an edge. Nodes referenced through a form this class does not understand are
+   * only included if they declare an edge themselves.
+   */
+  public static Set<Resource> getNodes(Model configuration) {
+    Set<Resource> nodes = new LinkedHashSet<>();
+    for (Property p : List.of(HAS_INPUT, HAS_OUTPUT)) {
+      for (Resource node : configuration.listSubjectsWithProperty(p).toList()) {
+        nodes.add(node);
+        getReferences(node, p).ifPresent(nodes::addAll);
+      }
+    }
+    return nodes;
+  }
+
+  /**
+   * Returns the nodes consuming the outputs of {@code node}, one entry per edge.
+   */
+  public static Optional<List<Resource>> getConsumers(Resource node) {
+    return getNeighbours(node, HAS_OUTPUT, HAS_INPUT);
+  }
+
+  /**
+   * Returns the nodes producing the inputs of {@code node}, one entry per edge.
+   */
+  public static Optional<List<Resource>> getProducers(Resource node) {
+    return getNeighbours(node, HAS_INPUT, HAS_OUTPUT);
+  }
+
+  /**
+   * Returns true only if {@code node} has exactly one input and its producer has exactly one
+   * output edge, i.e. no other node can observe the model flowing into {@code node}.
+   */
+  public static boolean isSoleConsumerOfInput(Resource node) {
+    Optional<List<Resource>> producers = getProducers(node);
+    if (producers.isEmpty() || producers.get().size() != 1) {
+      return false;
+    }
+    Optional<List<Resource>> consumers = getConsumers(producers.get().get(0));
+    return consumers.isPresent() && consumers.get().size() == 1 && consumers.get().get(0).equals(node);
+  }
+
+  /**
+   * Returns true if {@code node} is decorated by a wrapper that may keep or inspect the models
+   * flowing into or out of {@code node}, or if its decorators can not be determined.
+   */
+  public static boolean isObservedByWrapper(Resource node) {
+    if (node == null || node.getModel() == null) {
+      return false;
+    }
+    final Optional<List<Resource>> wrappers = getReferences(node, DECORATED_BY);
+    if (wrappers.isEmpty()) {
+      return true;
+    }
+    return wrappers.get().stream().anyMatch(wrapper -> wrapper.listProperties(RDF.type).toList().stream()
+      .map(Statement::getObject)
+      .noneMatch(TRANSPARENT_WRAPPERS::contains));
+  }
+
+  private static Optional<List<Resource>> getNeighbours(Resource node, Property own, Property inverse) {
+    if (node == null || node.getModel() == null) {
+      return Optional.empty();
+    }
+    Model model = node.getModel();
+    // an edge may be declared on both of its ends, so per neighbour the larger count wins
+    Map<Resource, Integer> declaredHere = new LinkedHashMap<>();
+    Optional<List<Resource>> ownReferences = getReferences(node, own);
+    if (ownReferences.isEmpty()) {
+      return Optional.empty();
+    }
+    ownReferences.get().forEach(r -> declaredHere.merge(r, 1, Integer::sum));
+    Map<Resource, Integer> declaredThere = new LinkedHashMap<>();
+    for (Resource other : model.listSubjectsWithProperty(inverse).toList()) {
+      Optional<List<Resource>> otherReferences = getReferences(other, inverse);
+      if (otherReferences.isEmpty()) {
+        return Optional.empty();
+      }
+      int count = (int) otherReferences.get().stream().filter(node::equals).count();
+      if (count > 0) {
+        declaredThere.put(other, count);
+      }
+    }
+    Map<Resource, Integer> merged = new LinkedHashMap<>(declaredHere);
+    declaredThere.forEach((r, c) -> merged.merge(r, c, Math::max));
+    List<Resource> result = new ArrayList<>();
+    merged.forEach((r, c) -> result.addAll(Collections.nCopies(c, r)));
+    return Optional.of(result);
+  }
+
+  private static Optional<List<Resource>> getReferences(Resource node, Property p) {
+    List<Resource> result = new ArrayList<>();
+    for (RDFNode o : node.listProperties(p).mapWith(Statement::getObject).toList()) {
+      if (o.isURIResource() && !o.equals(RDF.nil)) {
+        result.add(o.asResource());
+      } else if (o.isResource() && (o.equals(RDF.nil) || o.asResource().hasProperty(RDF.first))) {
+        for (RDFNode element : o.as(RDFList.class).asJavaList()) {
+          if (!element.isURIResource()) {
+            return Optional.empty();
+          }
+          result.add(element.asResource());
+        }
+      } else {
+        return Optional.empty();
+      }
+    }
+    return Optional.of(result);
+  }
+
+}
@@ -0,0 +1,328 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * External-memory merge of graphs into a single, sorted and duplicate free N-Triples file.
+ * <p>
+ * Every input is spilled, in parallel, into sorted run files. The run size is split evenly
+ * between the concurrent spills, so at most {@code runSize} triples are buffered in total.
+ * Terms are stored front-coded against the term at the same position of the
+ * preceding triple, so repeated subjects and predicates in sorted order cost a few bytes.
+ * Runs are then k-way merged with a priority queue, dropping duplicates on the fly.
+ * If there are more runs than {@link #MAX_FAN_IN}, groups of runs are first merged into
+ * larger runs in parallel. Apart from the input graphs themselves, which are read as given,
+ * heap usage is bounded by the run size, not by the input size.
+ */
+public class ExternalTripleMerger {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExternalTripleMerger.class);
+
+  static final int MAX_FAN_IN = 64;
+
+  private static final Comparator<String[]> TRIPLE_ORDER = (a, b) -> {
+    for (int i = 0; i < 3; i++) {
+      int c = a[i].compareTo(b[i]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  };
+
+  private final Path spillDirectory;
+  private final int runSize;
+  private final AtomicInteger runCounter = new AtomicInteger();
+
+  public ExternalTripleMerger(Path spillDirectory, int runSize) {
+    if (runSize < 1) {
+      throw new IllegalArgumentException("Run size must be positive, but was " + runSize);
+    }
+    this.spillDirectory = spillDirectory;
+    this.runSize = runSize;
+  }
+
+  /**
+   * Merges the given graphs into {@code outputFile} as N-Triples.
+   *
+   * @return the number of distinct triples written
+   */
+  public long merge(List<Graph> inputs, Path outputFile) throws IOException {
+    final int parallelism = Math.max(1, Math.min(inputs.size(), Runtime.getRuntime().availableProcessors()));
+    final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    // up to parallelism spills buffer at once, each gets its share of the run size
+    final int spillSize = Math.max(1, runSize / parallelism);
+    try {
+      List<Future<List<Path>>> spills = new ArrayList<>();
+      for (Graph input : inputs) {
+        spills.add(executor.submit(() -> spill(input, spillSize)));
+      }
+      List<Path> runs = new ArrayList<>();
+      for (Future<List<Path>> spill : spills) {
+        runs.addAll(await(spill));
+      }
+      logger.info("Spilled {} inputs into {} sorted runs in {}", inputs.size(), runs.size(), spillDirectory);
+      while (runs.size() > MAX_FAN_IN) {
+        List<Future<Path>> merges = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+          final List<Path> group = runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size()));
+          merges.add(executor.submit(() -> mergeIntoRun(group)));
+        }
+        List<Path> merged = new ArrayList<>();
+        for (Future<Path> merge : merges) {
+          merged.add(await(merge));
+        }
+        runs = merged;
+      }
+      return mergeIntoNTriples(runs, outputFile);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static <T> T await(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while merging");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private List<Path> spill(Graph input, int spillSize) throws IOException {
+    List<Path> runs = new ArrayList<>();
+    List<String[]> buffer = new ArrayList<>(Math.min(spillSize, 1 << 16));
+    ExtendedIterator<Triple> it = input.find(Node.ANY, Node.ANY, Node.ANY);
+    try {
+      while (it.hasNext()) {
+        Triple t = it.next();
+        buffer.add(new String[]{
+          NodeFmtLib.str(t.getSubject()), NodeFmtLib.str(t.getPredicate()), NodeFmtLib.str(t.getObject())
+        });
+        if (buffer.size() == spillSize) {
+          runs.add(writeRun(buffer));
+          buffer.clear();
+        }
+      }
+    } finally {
+      it.close();
+    }
+    if (!buffer.isEmpty()) {
+      runs.add(writeRun(buffer));
+    }
+    return runs;
+  }
+
+  private Path writeRun(List<String[]> triples) throws IOException {
+    triples.sort(TRIPLE_ORDER);
+    Path run = nextRunFile();
+    try (RunWriter writer = new RunWriter(run)) {
+      String[] previous = null;
+      for (String[] triple : triples) {
+        if (previous == null || TRIPLE_ORDER.compare(previous, triple) != 0) {
+          writer.write(triple);
+          previous = triple;
+        }
+      }
+    }
+    return run;
+  }
+
+  private Path mergeIntoRun(List<Path> runs) throws IOException {
+    Path run = nextRunFile();
+    try (RunWriter writer = new RunWriter(run)) {
+      kWayMerge(runs, writer::write);
+    }
+    return run;
+  }
+
+  private long mergeIntoNTriples(List<Path> runs, Path outputFile) throws IOException {
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+      Files.newOutputStream(outputFile), StandardCharsets.UTF_8), 1 << 16)) {
+      return kWayMerge(runs, triple -> {
+        writer.write(triple[0]);
+        writer.write(' ');
+        writer.write(triple[1]);
+        writer.write(' ');
+        writer.write(triple[2]);
+        writer.write(" .\n");
+      });
+    }
+  }
+
+  private long kWayMerge(List<Path> runs, TripleSink sink) throws IOException {
+    List<RunReader> readers = new ArrayList<>();
+    try {
+      PriorityQueue<RunReader> heap = new PriorityQueue<>(Math.max(1, runs.size()),
+        (a, b) -> TRIPLE_ORDER.compare(a.current, b.current));
+      for (Path run : runs) {
+        RunReader reader = new RunReader(run);
+        readers.add(reader);
+        if (reader.advance()) {
+          heap.add(reader);
+        }
+      }
+      long count = 0;
+      String[] previous = null;
+      while (!heap.isEmpty()) {
+        RunReader reader = heap.poll();
+        String[] triple = reader.current;
+        if (previous == null || TRIPLE_ORDER.compare(previous, triple) != 0) {
+          sink.accept(triple);
+          previous = triple;
+          count++;
+        }
+        if (reader.advance()) {
+          heap.add(reader);
+        }
+      }
+      return count;
+    } finally {
+      for (RunReader reader : readers) {
+        reader.close();
+      }
+      for (Path run : runs) {
+        Files.deleteIfExists(run);
+      }
+    }
+  }
+
+  private Path nextRunFile() {
+    return spillDirectory.resolve("run-" + runCounter.getAndIncrement() + ".bin");
+  }
+
+  private interface TripleSink {
+    void accept(String[] triple) throws IOException;
+  }
+
+  private static int sharedPrefixLength(String a, String b) {
+    int max = Math.min(a.length(), b.length());
+    int i = 0;
+    while (i < max && a.charAt(i) == b.charAt(i)) {
+      i++;
+    }
+    // never split a surrogate pair, the suffix has to be valid UTF-16 on its own
+    if (i > 0 && Character.isHighSurrogate(a.charAt(i - 1))) {
+      i--;
+    }
+    return i;
+  }
+
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  private static class RunWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final String[] previous = {"", "", ""};
+
+    private RunWriter(Path file) throws IOException {
+      this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+
+    private void write(String[] triple) throws IOException {
+      out.writeBoolean(true);
+      for (int i = 0; i < 3; i++) {
+        int shared = sharedPrefixLength(previous[i], triple[i]);
+        byte[] suffix = triple[i].substring(shared).getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, shared);
+        writeVarInt(out, suffix.length);
+        out.write(suffix);
+        previous[i] = triple[i];
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.writeBoolean(false);
+      out.close();
+    }
+
+  }
+
+  private static class RunReader implements Closeable {
+
+    private final DataInputStream in;
+    private String[] current = {"", "", ""};
+
+    private RunReader(Path file) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    }
+
+    private boolean advance() throws IOException {
+      if (!in.readBoolean()) {
+        return false;
+      }
+      // a fresh array, since the previous one may still be referenced by the merge
+      String[] next = new String[3];
+      for (int i = 0; i < 3; i++) {
+        int shared = readVarInt(in);
+        byte[] suffix = new byte[readVarInt(in)];
+        in.readFully(suffix);
+        next[i] = current[i].substring(0, shared) + new String(suffix, StandardCharsets.UTF_8);
+      }
+      current = next;
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+  }
+
+}
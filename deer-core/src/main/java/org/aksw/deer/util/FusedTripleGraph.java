@@ -0,0 +1,178 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.Factory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Lazily evaluated result of passing every triple of a source graph through a {@link TripleMapper}.
+ * <p>
+ * Mapping a pending {@code FusedTripleGraph} again composes both mappers instead of evaluating
+ * the first one, so that a chain of per-triple operators is evaluated in a single scan of its
+ * input into a single result graph (operator fusion). The result is computed on first access,
+ * after which the view is detached from the source graph. Alternatively, a pending graph can be
+ * streamed to a consumer without ever being materialized, see {@link TripleStream}.
+ */
+public class FusedTripleGraph extends GraphBase implements TripleStream {
+
+  private static final Logger logger = LoggerFactory.getLogger(FusedTripleGraph.class);
+
+  /**
+   * Maps a single triple to any number of triples, independently of all other triples.
+   */
+  @FunctionalInterface
+  public interface TripleMapper {
+
+    void map(Triple triple, Consumer<Triple> sink);
+
+    default TripleMapper andThen(TripleMapper next) {
+      return (triple, sink) -> map(triple, mapped -> next.map(mapped, sink));
+    }
+
+  }
+
+  private Graph source;
+  private TripleMapper mapper;
+  private final int stages;
+  private volatile boolean streamed = false;
+  private volatile Graph materialized = null;
+
+  private FusedTripleGraph(Graph source, TripleMapper mapper, int stages) {
+    this.source = source;
+    this.mapper = mapper;
+    this.stages = stages;
+  }
+
+  /**
+   * Maps the triples of {@code source} through {@code mapper}, fusing it with {@code source}
+   * if that is a pending {@code FusedTripleGraph}.
+   *
+   * @param lazy whether to defer the evaluation until the result is accessed, which should only
+   *             be done if the result is consumed by another per-triple operator
+   */
+  public static Model map(Model source, TripleMapper mapper, boolean lazy) {
+    final FusedTripleGraph graph = source.getGraph() instanceof FusedTripleGraph
+      ? ((FusedTripleGraph) source.getGraph()).andThen(mapper)
+      : new FusedTripleGraph(source.getGraph(), mapper, 1);
+    return ModelFactory.createModelForGraph(lazy ? graph : graph.materialize());
+  }
+
+  /**
+   * Returns true if {@code model} is backed by a {@code FusedTripleGraph} that has neither been
+   * evaluated nor streamed yet.
+   */
+  public static boolean isPending(Model model) {
+    return model != null && model.getGraph() instanceof FusedTripleGraph
+      && ((FusedTripleGraph) model.getGraph()).isPending();
+  }
+
+  public boolean isMaterialized() {
+    return materialized != null;
+  }
+
+  @Override
+  public boolean isPending() {
+    return !streamed && materialized == null;
+  }
+
+  @Override
+  public boolean isStreamed() {
+    return streamed;
+  }
+
+  @Override
+  public void forEach(Consumer<Triple> sink) {
+    final Graph claimedSource;
+    final TripleMapper claimedMapper;
+    synchronized (this) {
+      if (!isPending()) {
+        throw new IllegalStateException("Triples of this graph have already been evaluated");
+      }
+      claimedSource = source;
+      claimedMapper = mapper;
+      source = null;
+      mapper = null;
+      streamed = true;
+    }
+    final long startTime = System.currentTimeMillis();
+    TripleStreams.forEach(claimedSource, t -> claimedMapper.map(t, sink));
+    logger.debug("Streamed {} fused stages in a single scan in {}ms.", stages, System.currentTimeMillis() - startTime);
+  }
+
+  @Override
+  protected ExtendedIterator<Triple> graphBaseFind(Triple t) {
+    return materialize().find(t);
+  }
+
+  @Override
+  protected boolean graphBaseContains(Triple t) {
+    return materialize().contains(t);
+  }
+
+  @Override
+  protected int graphBaseSize() {
+    return materialize().size();
+  }
+
+  @Override
+  public void performAdd(Triple t) {
+    materialize().add(t);
+  }
+
+  @Override
+  public void performDelete(Triple t) {
+    materialize().delete(t);
+  }
+
+  private synchronized FusedTripleGraph andThen(TripleMapper next) {
+    if (streamed) {
+      throw new IllegalStateException("Triples of this graph have already been streamed");
+    }
+    if (materialized != null) {
+      return new FusedTripleGraph(materialized, next, 1);
+    }
+    return new FusedTripleGraph(source, mapper.andThen(next), stages + 1);
+  }
+
+  private synchronized Graph materialize() {
+    if (materialized == null) {
+      if (streamed) {
+        throw new IllegalStateException("Triples of this graph have already been streamed");
+      }
+      final long startTime = System.currentTimeMillis();
+      final Graph result = Factory.createDefaultGraph();
+      TripleStreams.forEach(source, t -> mapper.map(t, result::add));
+      logger.debug("Evaluated {} fused stages in a single scan in {}ms.", stages, System.currentTimeMillis() - startTime);
+      materialized = result;
+      source = null;
+      mapper = null;
+    }
+    return materialized;
+  }
+
+}
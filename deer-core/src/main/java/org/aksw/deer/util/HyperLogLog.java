@@ -0,0 +1,96 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+/**
+ * HyperLogLog estimator for the number of distinct strings in a stream.
+ * <p>
+ * Uses {@code 2^precision} registers of one byte each, the standard error of the estimate
+ * is about {@code 1.04 / sqrt(2^precision)}, i.e. 0.8% with the default precision of 14
+ * at 16KiB of memory. Small cardinalities are estimated by linear counting.
+ * Instances are not thread safe.
+ */
+public class HyperLogLog {
+
+  public static final int DEFAULT_PRECISION = 14;
+
+  private final int precision;
+  private final byte[] registers;
+
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  public HyperLogLog(int precision) {
+    if (precision < 4 || precision > 18) {
+      throw new IllegalArgumentException("Precision must be between 4 and 18, but was " + precision);
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  public void add(CharSequence value) {
+    addHash(hash(value));
+  }
+
+  public void addHash(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // rank of the first set bit in the remaining bits, the sentinel bit bounds it
+    long remaining = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * 64 bit FNV-1a over the UTF-16 code units, followed by the murmur3 finalizer for avalanche.
+   */
+  static long hash(CharSequence value) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      h ^= value.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  public long estimate() {
+    final int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1d / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    final double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+    double estimate = alpha * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+}
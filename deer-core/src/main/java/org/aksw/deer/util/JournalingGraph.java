@@ -0,0 +1,137 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Graph view that applies all modifications directly to a base graph while recording the
+ * effective changes, so that they can be undone with {@link #rollback()}.
+ * <p>
+ * Only triples that were really added or removed are journaled, hence the memory overhead
+ * is proportional to the size of the change and not to the size of the base graph.
+ * Instances are not thread safe.
+ */
+public class JournalingGraph extends GraphBase {
+
+  private final Graph base;
+  private final Set<Triple> added = new LinkedHashSet<>();
+  private final Set<Triple> removed = new LinkedHashSet<>();
+
+  public JournalingGraph(Graph base) {
+    this.base = base;
+  }
+
+  /**
+   * Creates a view whose journal already holds the given changes, which must have been
+   * applied to {@code base} before.
+   */
+  protected JournalingGraph(Graph base, Set<Triple> added, Set<Triple> removed) {
+    this.base = base;
+    this.added.addAll(added);
+    this.removed.addAll(removed);
+  }
+
+  public Graph getBase() {
+    return base;
+  }
+
+  @Override
+  public void performAdd(Triple t) {
+    if (!base.contains(t)) {
+      base.add(t);
+      if (!removed.remove(t)) {
+        added.add(t);
+      }
+    }
+  }
+
+  @Override
+  public void performDelete(Triple t) {
+    if (base.contains(t)) {
+      base.delete(t);
+      if (!added.remove(t)) {
+        removed.add(t);
+      }
+    }
+  }
+
+  @Override
+  protected ExtendedIterator<Triple> graphBaseFind(Triple triplePattern) {
+    return base.find(triplePattern);
+  }
+
+  @Override
+  protected boolean graphBaseContains(Triple t) {
+    return base.contains(t);
+  }
+
+  @Override
+  protected int graphBaseSize() {
+    return base.size();
+  }
+
+  @Override
+  protected PrefixMapping createPrefixMapping() {
+    return base.getPrefixMapping();
+  }
+
+  /**
+   * Forget the recorded changes, making them permanent.
+   */
+  public void commit() {
+    added.clear();
+    removed.clear();
+  }
+
+  /**
+   * Undo all changes recorded since construction or the last {@link #commit()}.
+   */
+  public void rollback() {
+    added.forEach(base::delete);
+    removed.forEach(base::add);
+    commit();
+  }
+
+  public int getJournalSize() {
+    return added.size() + removed.size();
+  }
+
+  /**
+   * Returns a read-only view of the triples added since construction or the last {@link #commit()}.
+   */
+  public Set<Triple> getAdded() {
+    return Collections.unmodifiableSet(added);
+  }
+
+  /**
+   * Returns a read-only view of the triples removed since construction or the last {@link #commit()}.
+   */
+  public Set<Triple> getRemoved() {
+    return Collections.unmodifiableSet(removed);
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.Factory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NullIterator;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Read-mostly union view over a list of graphs.
+ * <p>
+ * Reads are answered directly from the underlying graphs, so building the union costs nothing.
+ * If {@code deduplicate} is set, a triple contained in more than one graph is only reported
+ * for the first of them, otherwise it is reported once per graph.
+ * The first modification materializes the union into a fresh in-memory graph (copy on write),
+ * after which the view is detached from the underlying graphs.
+ */
+public class LazyUnionGraph extends GraphBase {
+
+  private final List<Graph> graphs;
+  private final boolean deduplicate;
+  private volatile Graph materialized = null;
+
+  public LazyUnionGraph(List<Graph> graphs, boolean deduplicate) {
+    this.graphs = List.copyOf(graphs);
+    this.deduplicate = deduplicate;
+  }
+
+  /**
+   * Convenience method to create a model backed by a {@code LazyUnionGraph} of the given models.
+   */
+  public static Model union(List<Model> models, boolean deduplicate) {
+    return ModelFactory.createModelForGraph(new LazyUnionGraph(
+      models.stream().map(Model::getGraph).collect(Collectors.toList()), deduplicate));
+  }
+
+  public boolean isMaterialized() {
+    return materialized != null;
+  }
+
+  @Override
+  protected ExtendedIterator<Triple> graphBaseFind(Triple t) {
+    Graph m = materialized;
+    if (m != null) {
+      return m.find(t);
+    }
+    ExtendedIterator<Triple> result = NullIterator.instance();
+    for (int i = 0; i < graphs.size(); i++) {
+      ExtendedIterator<Triple> it = graphs.get(i).find(t);
+      if (deduplicate && i > 0) {
+        final List<Graph> previous = graphs.subList(0, i);
+        it = it.filterDrop(x -> previous.stream().anyMatch(g -> g.contains(x)));
+      }
+      result = result.andThen(it);
+    }
+    return result;
+  }
+
+  @Override
+  protected boolean graphBaseContains(Triple t) {
+    Graph m = materialized;
+    if (m != null) {
+      return m.contains(t);
+    }
+    return graphs.stream().anyMatch(g -> g.contains(t));
+  }
+
+  @Override
+  protected int graphBaseSize() {
+    Graph m = materialized;
+    if (m != null) {
+      return m.size();
+    }
+    if (deduplicate) {
+      return super.graphBaseSize();
+    }
+    return graphs.stream().mapToInt(Graph::size).sum();
+  }
+
+  @Override
+  public void performAdd(Triple t) {
+    materialize().add(t);
+  }
+
+  @Override
+  public void performDelete(Triple t) {
+    materialize().delete(t);
+  }
+
+  @Override
+  protected PrefixMapping createPrefixMapping() {
+    PrefixMapping prefixMapping = new PrefixMappingImpl();
+    for (int i = graphs.size() - 1; i >= 0; i--) {
+      prefixMapping.setNsPrefixes(graphs.get(i).getPrefixMapping());
+    }
+    return prefixMapping;
+  }
+
+  private synchronized Graph materialize() {
+    if (materialized == null) {
+      Graph copy = Factory.createDefaultGraph();
+      GraphUtil.addInto(copy, this);
+      materialized = copy;
+    }
+    return materialized;
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Content fingerprints of models and of resource descriptions.
+ * <p>
+ * Model fingerprints are order independent: every triple is hashed on its own and the hashes
+ * are combined by addition, so equal graphs yield equal fingerprints regardless of how they
+ * were built, in a single pass and without sorting. Blank nodes are hashed by their label,
+ * hence a re-parsed input containing blank nodes gets a new fingerprint.
+ */
+public final class ModelFingerprint {
+
+  private ModelFingerprint() {
+
+  }
+
+  /**
+   * Returns the fingerprint of the triples in {@code model}.
+   */
+  public static String of(Model model) {
+    long sum = 0;
+    long mixedSum = 0;
+    long count = 0;
+    ExtendedIterator<Triple> it = model.getGraph().find(Node.ANY, Node.ANY, Node.ANY);
+    try {
+      while (it.hasNext()) {
+        Triple t = it.next();
+        long h = HyperLogLog.hash(NodeFmtLib.str(t.getSubject()) + ' '
+          + NodeFmtLib.str(t.getPredicate()) + ' ' + NodeFmtLib.str(t.getObject()));
+        sum += h;
+        // a second, differently mixed sum makes colliding multisets much less likely
+        mixedSum += Long.rotateLeft(h * 0x9e3779b97f4a7c15L, 31) ^ h;
+        count++;
+      }
+    } finally {
+      it.close();
+    }
+    return Long.toHexString(count) + "-" + Long.toHexString(sum) + "-" + Long.toHexString(mixedSum);
+  }
+
+  /**
+   * Returns a canonical string of all statements about {@code resource}, following blank nodes.
+   */
+  public static String describe(Resource resource) {
+    final StringBuilder sb = new StringBuilder();
+    describe(resource, sb, new HashSet<>());
+    return sb.toString();
+  }
+
+  private static void describe(Resource resource, StringBuilder sb, Set<Resource> visited) {
+    if (!visited.add(resource)) {
+      sb.append("[cycle]");
+      return;
+    }
+    final List<String> statements = new ArrayList<>();
+    for (Statement stmt : resource.listProperties().toList()) {
+      final StringBuilder statement = new StringBuilder(NodeFmtLib.str(stmt.getPredicate().asNode())).append(' ');
+      final RDFNode object = stmt.getObject();
+      if (object.isAnon()) {
+        statement.append('[');
+        describe(object.asResource(), statement, visited);
+        statement.append(']');
+      } else {
+        statement.append(NodeFmtLib.str(object.asNode()));
+      }
+      statements.add(statement.toString());
+    }
+    Collections.sort(statements);
+    statements.forEach(s -> sb.append(s).append(" ;"));
+    visited.remove(resource);
+  }
+
+  /**
+   * Returns the hex encoded SHA-256 of {@code value}.
+   */
+  public static String sha256(String value) {
+    try {
+      final StringBuilder hex = new StringBuilder(64);
+      for (byte b : MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8))) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+}
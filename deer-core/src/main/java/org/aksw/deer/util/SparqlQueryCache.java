@@ -0,0 +1,136 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.aksw.deer.DeerMetrics;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.update.UpdateFactory;
+import org.apache.jena.update.UpdateRequest;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Shared, bounded cache of parsed SPARQL queries and update requests, keyed by their text.
+ * <p>
+ * Nodes that evaluate the same query string over and over (learning loop, server mode)
+ * only pay for parsing once. The least recently used entries are evicted once the capacity,
+ * configurable through the system property {@code deer.sparqlQueryCacheSize}, is reached.
+ */
+public class SparqlQueryCache {
+
+  private static final int DEFAULT_CAPACITY = 256;
+
+  private static final SparqlQueryCache instance =
+    new SparqlQueryCache(Integer.getInteger("deer.sparqlQueryCacheSize", DEFAULT_CAPACITY));
+
+  static {
+    DeerMetrics.counter("deer_cache_requests_total", "Lookups in the caches of DEER nodes.",
+      instance::getHits, "cache", "sparql", "result", "hit");
+    DeerMetrics.counter("deer_cache_requests_total", "Lookups in the caches of DEER nodes.",
+      instance::getMisses, "cache", "sparql", "result", "miss");
+  }
+
+  public static SparqlQueryCache getInstance() {
+    return instance;
+  }
+
+  private final BoundedCache<Query> queries;
+  private final BoundedCache<UpdateRequest> updates;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public SparqlQueryCache(int capacity) {
+    this.queries = new BoundedCache<>(capacity);
+    this.updates = new BoundedCache<>(capacity);
+  }
+
+  /**
+   * Returns the parsed form of the given SPARQL query.
+   * The returned object is shared and must not be modified by callers.
+   */
+  public Query getQuery(String queryString) {
+    return queries.get(queryString, QueryFactory::create);
+  }
+
+  /**
+   * Returns the parsed form of the given SPARQL update request.
+   * The returned object is shared and must not be modified by callers.
+   */
+  public UpdateRequest getUpdateRequest(String updateString) {
+    return updates.get(updateString, UpdateFactory::create);
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public JSONObject getStatistics() {
+    return new JSONObject()
+      .put("hits", getHits())
+      .put("misses", getMisses())
+      .put("size", queries.size() + updates.size());
+  }
+
+  private class BoundedCache<T> {
+
+    private final Map<String, T> backend;
+
+    private BoundedCache(int capacity) {
+      this.backend = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+          return size() > capacity;
+        }
+      };
+    }
+
+    private T get(String key, Function<String, T> parser) {
+      synchronized (backend) {
+        T value = backend.get(key);
+        if (value != null) {
+          hits.increment();
+          return value;
+        }
+      }
+      // parse outside of the lock, a concurrent miss on the same key just parses twice
+      misses.increment();
+      T value = parser.apply(key);
+      synchronized (backend) {
+        backend.putIfAbsent(key, value);
+      }
+      return value;
+    }
+
+    private int size() {
+      synchronized (backend) {
+        return backend.size();
+      }
+    }
+
+  }
+
+}
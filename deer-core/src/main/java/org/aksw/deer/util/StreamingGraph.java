@@ -0,0 +1,247 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.Factory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * {@link TripleStream} over a one-shot source of triples.
+ * <p>
+ * Sources passed to {@link #produce(TripleSource)} run on a background thread right away and hand
+ * their triples over in batches through a bounded queue, so that producing and consuming the
+ * triples overlap. A full queue blocks the producer until the consumer catches up, which bounds the
+ * memory held by the stream. If the graph becomes unreachable before its triples were consumed,
+ * the producer is cancelled. Random access to a pending graph buffers all triples in memory first.
+ */
+public class StreamingGraph extends GraphBase implements TripleStream {
+
+  /**
+   * Emits triples to a sink, e.g. by parsing a file. Sources are run at most once.
+   */
+  @FunctionalInterface
+  public interface TripleSource {
+
+    void emit(Consumer<Triple> sink);
+
+  }
+
+  private static final int BATCH_SIZE = 1024;
+
+  private static final int DEFAULT_QUEUE_SIZE = 64;
+
+  private static final Cleaner cleaner = Cleaner.create();
+
+  private static final ExecutorService producers = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "deer-triple-stream");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private TripleSource source;
+  private volatile boolean streamed = false;
+  private volatile Graph buffered = null;
+
+  private StreamingGraph(TripleSource source) {
+    this.source = source;
+  }
+
+  /**
+   * Returns a model streaming the triples of {@code source}, which is run on a background thread.
+   * The queue holds at most {@code deer.streaming.queueSize} batches of 1024 triples (default: 64).
+   */
+  public static Model produce(TripleSource source) {
+    final Pipe pipe = new Pipe(Integer.getInteger("deer.streaming.queueSize", DEFAULT_QUEUE_SIZE));
+    final StreamingGraph graph = new StreamingGraph(pipe::drain);
+    // the producer must not reference the graph, otherwise it could never be cleaned
+    cleaner.register(graph, pipe::cancel);
+    producers.execute(() -> pipe.fill(source));
+    return ModelFactory.createModelForGraph(graph);
+  }
+
+  /**
+   * Returns a model streaming the triples of all {@code models} one after another,
+   * without removing duplicates. Pending streams among {@code models} are consumed.
+   */
+  public static Model concat(List<Model> models) {
+    final List<Graph> graphs = new ArrayList<>();
+    models.forEach(model -> graphs.add(model.getGraph()));
+    return ModelFactory.createModelForGraph(new StreamingGraph(sink ->
+      graphs.forEach(graph -> TripleStreams.forEach(graph, sink))));
+  }
+
+  @Override
+  public boolean isPending() {
+    return !streamed && buffered == null;
+  }
+
+  @Override
+  public boolean isStreamed() {
+    return streamed;
+  }
+
+  @Override
+  public void forEach(Consumer<Triple> sink) {
+    claim().emit(sink);
+  }
+
+  @Override
+  protected ExtendedIterator<Triple> graphBaseFind(Triple t) {
+    return buffer().find(t);
+  }
+
+  @Override
+  protected boolean graphBaseContains(Triple t) {
+    return buffer().contains(t);
+  }
+
+  @Override
+  protected int graphBaseSize() {
+    return buffer().size();
+  }
+
+  @Override
+  public void performAdd(Triple t) {
+    buffer().add(t);
+  }
+
+  @Override
+  public void performDelete(Triple t) {
+    buffer().delete(t);
+  }
+
+  private synchronized TripleSource claim() {
+    if (!isPending()) {
+      throw new IllegalStateException("Triples of this stream have already been consumed");
+    }
+    final TripleSource claimed = source;
+    source = null;
+    streamed = true;
+    return claimed;
+  }
+
+  private synchronized Graph buffer() {
+    if (buffered == null) {
+      if (streamed) {
+        throw new IllegalStateException("Triples of this stream have already been streamed");
+      }
+      final Graph result = Factory.createDefaultGraph();
+      source.emit(result::add);
+      source = null;
+      buffered = result;
+    }
+    return buffered;
+  }
+
+  /**
+   * Bounded hand-over of batches of triples from a producer thread to a consumer thread.
+   */
+  private static class Pipe {
+
+    private static final List<Triple> END = new ArrayList<>();
+
+    private final BlockingQueue<List<Triple>> queue;
+    private volatile boolean cancelled = false;
+    private volatile Throwable error = null;
+    private List<Triple> batch = new ArrayList<>(BATCH_SIZE);
+
+    private Pipe(int capacity) {
+      this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    private void fill(TripleSource source) {
+      try {
+        source.emit(triple -> {
+          batch.add(triple);
+          if (batch.size() == BATCH_SIZE) {
+            put(batch);
+            batch = new ArrayList<>(BATCH_SIZE);
+          }
+        });
+        put(batch);
+      } catch (CancellationException e) {
+        return;
+      } catch (Throwable e) {
+        error = e;
+      }
+      try {
+        put(END);
+      } catch (CancellationException e) {
+        // nobody is listening anymore
+      }
+    }
+
+    private void put(List<Triple> triples) {
+      try {
+        while (!cancelled) {
+          if (queue.offer(triples, 100, TimeUnit.MILLISECONDS)) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (error == null) {
+          error = new IllegalStateException("Interrupted while producing triples", e);
+        }
+        // the consumer has to learn about the failure instead of waiting for further batches
+        queue.clear();
+        queue.offer(END);
+      }
+      throw new CancellationException();
+    }
+
+    private void drain(Consumer<Triple> sink) {
+      try {
+        List<Triple> triples;
+        while ((triples = queue.take()) != END) {
+          triples.forEach(sink);
+        }
+      } catch (InterruptedException e) {
+        cancel();
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while streaming triples", e);
+      } catch (RuntimeException | Error e) {
+        cancel();
+        throw e;
+      }
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      } else if (error instanceof Error) {
+        throw (Error) error;
+      }
+    }
+
+    private void cancel() {
+      cancelled = true;
+      queue.clear();
+    }
+
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.Triple;
+
+import java.util.function.Consumer;
+
+/**
+ * A graph whose triples can be streamed to a single consumer, without ever holding all of them
+ * in memory.
+ * <p>
+ * As long as a {@code TripleStream} is pending, its triples can be passed on through
+ * {@link #forEach(Consumer)} exactly once. Any other access buffers the triples instead,
+ * after which the graph behaves like any other graph. Accessing a graph whose triples
+ * were streamed fails with an {@link IllegalStateException}.
+ *
+ * @see TripleStreams
+ */
+public interface TripleStream {
+
+  /**
+   * Returns true as long as the triples have neither been streamed nor buffered.
+   */
+  boolean isPending();
+
+  /**
+   * Returns true if the triples have been passed on through {@link #forEach(Consumer)}.
+   */
+  boolean isStreamed();
+
+  /**
+   * Passes all triples to {@code sink}, in the thread of the caller.
+   *
+   * @throws IllegalStateException if this stream is not pending anymore
+   */
+  void forEach(Consumer<Triple> sink);
+
+}
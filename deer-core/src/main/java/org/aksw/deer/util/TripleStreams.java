@@ -0,0 +1,156 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.aksw.deer.vocabulary.DEER;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Utilities for passing triples between execution nodes as {@link TripleStream}s.
+ * <p>
+ * A node may hand out a pending stream instead of a model only if its output flows into a single
+ * node that consumes its input triple by triple, see {@link #hasStreamingConsumer(Resource)}.
+ * Nodes are then pipelined: readers parse on a background thread into a bounded queue, while the
+ * consumer transforms and writes the triples, and a full queue blocks the reader.
+ * Streaming readers, merges and writers can be disabled through the system property
+ * {@code deer.streaming}.
+ */
+public final class TripleStreams {
+
+  public static final String ENABLED_PROPERTY = "deer.streaming";
+
+  private static final Set<Resource> PER_TRIPLE_OPERATORS = Set.of(
+    DEER.resource("AuthorityConformationEnrichmentOperator"),
+    DEER.resource("PredicateConformationEnrichmentOperator"),
+    DEER.resource("FilterEnrichmentOperator")
+  );
+
+  private static final Resource MERGE_OPERATOR = DEER.resource("MergeEnrichmentOperator");
+
+  private static final Resource FILE_WRITER = DEER.resource("FileModelWriter");
+
+  private static final Set<Lang> STREAMING_FORMATS = Set.of(Lang.NTRIPLES, Lang.NQUADS, Lang.RDFTHRIFT);
+
+  private TripleStreams() {
+
+  }
+
+  /**
+   * Returns true if {@code format}, given as in {@code deer:outputFormat}, can be written
+   * without the whole model.
+   */
+  public static boolean isStreamingFormat(String format) {
+    final Lang lang = RDFLanguages.nameToLang(format);
+    return lang != null && STREAMING_FORMATS.contains(lang);
+  }
+
+  public static boolean isEnabled() {
+    return Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+  }
+
+  /**
+   * Returns true if {@code model} is backed by a pending {@link TripleStream}.
+   */
+  public static boolean isPending(Model model) {
+    return model != null && model.getGraph() instanceof TripleStream
+      && ((TripleStream) model.getGraph()).isPending();
+  }
+
+  /**
+   * Returns true if the triples of {@code model} can be accessed without evaluating or consuming a
+   * {@link TripleStream}.
+   */
+  public static boolean isMaterialized(Model model) {
+    if (model == null || !(model.getGraph() instanceof TripleStream)) {
+      return true;
+    }
+    final TripleStream stream = (TripleStream) model.getGraph();
+    return !stream.isPending() && !stream.isStreamed();
+  }
+
+  /**
+   * Passes all triples of {@code graph} to {@code sink}, streaming them if {@code graph}
+   * is a pending {@link TripleStream}.
+   */
+  public static void forEach(Graph graph, Consumer<Triple> sink) {
+    if (graph instanceof TripleStream && ((TripleStream) graph).isPending()) {
+      ((TripleStream) graph).forEach(sink);
+      return;
+    }
+    final ExtendedIterator<Triple> it = graph.find(Node.ANY, Node.ANY, Node.ANY);
+    try {
+      while (it.hasNext()) {
+        sink.accept(it.next());
+      }
+    } finally {
+      it.close();
+    }
+  }
+
+  /**
+   * Returns true if the output of the execution node {@code node} flows into exactly one node,
+   * which consumes it as a stream of triples. These are conformation operators, filters without
+   * CONSTRUCT queries, non-external merges without deduplication and file writers with a streaming output
+   * format whose own output is not used. Neither end may be decorated by a wrapper that keeps or
+   * inspects the models, since a stream can only be consumed once.
+   */
+  public static boolean hasStreamingConsumer(Resource node) {
+    final Optional<List<Resource>> consumers = ExecutionGraphTopology.getConsumers(node);
+    if (consumers.isEmpty() || consumers.get().size() != 1) {
+      return false;
+    }
+    final Resource consumer = consumers.get().get(0);
+    if (ExecutionGraphTopology.isObservedByWrapper(node) || ExecutionGraphTopology.isObservedByWrapper(consumer)) {
+      return false;
+    }
+    final Set<RDFNode> types = consumer.listProperties(RDF.type).mapWith(Statement::getObject).toSet();
+    if (types.stream().anyMatch(PER_TRIPLE_OPERATORS::contains)) {
+      // filters with CONSTRUCT queries may join triples
+      return !consumer.hasProperty(DEER.property("sparqlConstructQuery"));
+    }
+    if (!isEnabled()) {
+      return false;
+    }
+    if (types.contains(MERGE_OPERATOR)) {
+      final Statement deduplicate = consumer.getProperty(DEER.property("deduplicate"));
+      final Statement mode = consumer.getProperty(DEER.property("mergeMode"));
+      return deduplicate != null && deduplicate.getObject().isLiteral() && !deduplicate.getBoolean()
+        && (mode == null || !mode.getObject().isLiteral() || !mode.getString().equalsIgnoreCase("external"));
+    }
+    if (types.contains(FILE_WRITER)) {
+      final Statement format = consumer.getProperty(DEER.property("outputFormat"));
+      final Optional<List<Resource>> writerConsumers = ExecutionGraphTopology.getConsumers(consumer);
+      return format != null && format.getObject().isLiteral() && isStreamingFormat(format.getString())
+        && writerConsumers.isPresent() && writerConsumers.get().isEmpty();
+    }
+    return false;
+  }
+
+}
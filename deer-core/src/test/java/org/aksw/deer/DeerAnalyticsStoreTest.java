@@ -0,0 +1,70 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer;
+
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class DeerAnalyticsStoreTest {
+
+  private static final Resource NODE = ResourceFactory.createResource("urn:ex/test/node");
+
+  @Test
+  public void writeMergesKeys() {
+    DeerAnalyticsStore.write("writeMergesKeys", NODE, new JSONObject().put("a", 1).put("b", 1));
+    DeerAnalyticsStore.write("writeMergesKeys", NODE, new JSONObject().put("b", 2));
+    DeerAnalyticsStore.write("writeMergesKeys", null, new JSONObject().put("c", 3));
+    JSONObject json = DeerAnalyticsStore.getAnalyticsForJob("writeMergesKeys");
+    JSONObject node = json.getJSONObject("operatorStats").getJSONObject(NODE.toString());
+    assertEquals("It should keep earlier keys", 1, node.getInt("a"));
+    assertEquals("It should overwrite existing keys", 2, node.getInt("b"));
+    assertEquals("It should write global stats", 3, json.getJSONObject("globalStats").getInt("c"));
+  }
+
+  @Test
+  public void typedMetrics() {
+    IntStream.range(0, 1000).parallel().forEach(i -> {
+      DeerAnalyticsStore.increment("typedMetrics", NODE, "count", 2);
+      DeerAnalyticsStore.time("typedMetrics", NODE, "time", 1_000_000);
+    });
+    DeerAnalyticsStore.gauge("typedMetrics", NODE, "gauge", 0.5);
+    JSONObject node = DeerAnalyticsStore.getAnalyticsForJob("typedMetrics")
+      .getJSONObject("operatorStats").getJSONObject(NODE.toString());
+    assertEquals("It should sum up concurrent increments", 2000, node.getLong("count"));
+    assertEquals("It should count concurrent timings", 1000, node.getJSONObject("time").getLong("count"));
+    assertEquals("It should sum up concurrent timings", 1000d, node.getJSONObject("time").getDouble("totalMs"), 1e-9);
+    assertEquals("It should report the gauge", 0.5, node.getDouble("gauge"), 1e-9);
+  }
+
+  @Test
+  public void remove() {
+    DeerAnalyticsStore.increment("remove", NODE, "count", 1);
+    DeerAnalyticsStore.remove("remove");
+    assertNull("It should drop removed jobs", DeerAnalyticsStore.getAnalyticsForJob("remove"));
+  }
+
+}
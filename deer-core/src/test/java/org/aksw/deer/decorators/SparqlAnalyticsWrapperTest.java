@@ -0,0 +1,50 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.decorators;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class SparqlAnalyticsWrapperTest {
+
+  @Test
+  public void compiledTemplate() {
+    SparqlAnalyticsWrapper.CompiledTemplate template =
+      new SparqlAnalyticsWrapper.CompiledTemplate("{\"count\": ?count, \"counter\": ?counter, \"q\": \"?\"}");
+    assertEquals("It should find all placeholders", Set.of("count", "counter"), template.getVariables());
+    JSONObject json = new JSONObject(template.render(Map.of("count", "42", "counter", "say \"hi\"")));
+    assertEquals("It should bind placeholders as JSON strings", "42", json.getString("count"));
+    assertEquals("It should not confuse placeholders sharing a prefix", "say \"hi\"", json.getString("counter"));
+    assertEquals("It should keep question marks that are not placeholders", "?", json.getString("q"));
+  }
+
+  @Test
+  public void compiledTemplateKeepsUnboundPlaceholders() {
+    SparqlAnalyticsWrapper.CompiledTemplate template = new SparqlAnalyticsWrapper.CompiledTemplate("\"?a\"");
+    assertEquals("It should keep unbound placeholders", "\"?a\"", template.render(Map.of()));
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.deer.util.LazyUnionGraph;
+import org.aksw.limes.core.io.cache.ACache;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class LimesCacheBuilderTest {
+
+  private Model model;
+
+  @Before
+  public void setUp() {
+    model = ModelFactory.createDefaultModel();
+    model.read(new StringReader(
+      "@prefix ex: <http://example.org/> ." +
+        "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> ." +
+        "ex:subject1 rdfs:label \"Barack Obama\" ." +
+        "ex:subject1 ex:age \"57\" ." +
+        "ex:subject2 rdfs:label \"Donald Trump\" ." +
+        "ex:subject3 ex:age \"73\" ."
+    ), null, "TTL");
+  }
+
+  @Test
+  public void getReferencedProperties() {
+    String ls = "AND(trigrams(x.http://www.w3.org/2000/01/rdf-schema#label, y.http://xmlns.com/foaf/0.1/name)|0.8," +
+      "exactmatch(x.http://example.org/age,y.http://example.org/age)|1.0)";
+    assertEquals("It should extract the source properties",
+      Optional.of(Set.of(RDFS.label.getURI(), "http://example.org/age")),
+      LimesCacheBuilder.getReferencedProperties(ls, "x", PrefixMapping.Standard));
+    assertEquals("It should extract the target properties",
+      Optional.of(Set.of("http://xmlns.com/foaf/0.1/name", "http://example.org/age")),
+      LimesCacheBuilder.getReferencedProperties(ls, "y", PrefixMapping.Standard));
+  }
+
+  @Test
+  public void getReferencedPrefixedProperties() {
+    PrefixMapping prefixes = PrefixMapping.Factory.create()
+      .setNsPrefix("rdfs", RDFS.getURI())
+      .setNsPrefix("ex", "http://example.org/");
+    String ls = "AND(trigrams(x.rdfs:label, y.ex:name)|0.8,exactmatch(x.ex:age,y.http://example.org/age)|1.0)";
+    assertEquals("It should expand prefixed source properties",
+      Optional.of(Set.of(RDFS.label.getURI(), "http://example.org/age")),
+      LimesCacheBuilder.getReferencedProperties(ls, "x", prefixes));
+    assertEquals("It should expand prefixed target properties",
+      Optional.of(Set.of("http://example.org/name", "http://example.org/age")),
+      LimesCacheBuilder.getReferencedProperties(ls, "y", prefixes));
+    assertEquals("It should not project names with undeclared prefixes",
+      Optional.empty(), LimesCacheBuilder.getReferencedProperties("trigrams(x.foaf:name, y.rdfs:label)", "y", prefixes));
+  }
+
+  @Test
+  public void toCache() {
+    ACache full = LimesCacheBuilder.toCache(model, Optional.empty());
+    assertEquals("It should contain all instances", 3, full.size());
+    ACache projected = LimesCacheBuilder.toCache(model, Optional.of(Set.of(RDFS.label.getURI())));
+    assertEquals("It should only contain instances with projected properties", 2, projected.size());
+    assertTrue("It should only contain projected properties",
+      projected.getInstance("http://example.org/subject1").getAllProperties().equals(Set.of(RDFS.label.getURI())));
+    assertSame("It should memoize caches", projected,
+      LimesCacheBuilder.toCache(model, Optional.of(Set.of(RDFS.label.getURI()))));
+    model.add(model.createResource("http://example.org/subject4"), RDFS.label, "Angela Merkel");
+    ACache rebuilt = LimesCacheBuilder.toCache(model, Optional.of(Set.of(RDFS.label.getURI())));
+    assertNotSame("It should drop memoized caches of modified models", projected, rebuilt);
+    assertEquals("It should reflect modifications", 3, rebuilt.size());
+  }
+
+  @Test
+  public void toCacheOfView() {
+    Model view = LazyUnionGraph.union(List.of(model), false);
+    ACache before = LimesCacheBuilder.toCache(view, Optional.of(Set.of(RDFS.label.getURI())));
+    assertEquals(2, before.size());
+    // writes to the graph underneath a view are not announced to the view's listeners
+    model.add(model.createResource("http://example.org/subject4"), RDFS.label, "Angela Merkel");
+    ACache after = LimesCacheBuilder.toCache(view, Optional.of(Set.of(RDFS.label.getURI())));
+    assertEquals("It should not return stale caches of views", 3, after.size());
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.limes.core.io.cache.Instance;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class LinkBlockingTest {
+
+  private static final String DOUBLE = "^^http://www.w3.org/2001/XMLSchema#double";
+
+  private static Instance instance(String uri, String property, String... values) {
+    Instance instance = new Instance(uri);
+    for (String value : values) {
+      instance.addProperty(property, value);
+    }
+    return instance;
+  }
+
+  private static Instance located(String uri, double lat, double lon) {
+    Instance instance = instance(uri, LinkBlocking.LATITUDE, lat + DOUBLE);
+    instance.addProperty(LinkBlocking.LONGITUDE, lon + DOUBLE);
+    return instance;
+  }
+
+  private static boolean shareBlock(LinkBlocking.KeyFunction keyFunction, Instance source, Instance target) {
+    Set<String> shared = new HashSet<>(keyFunction.sourceKeys(source));
+    shared.retainAll(keyFunction.targetKeys(target));
+    return !shared.isEmpty();
+  }
+
+  @Test
+  public void byPrefix() {
+    LinkBlocking.KeyFunction keyFunction = LinkBlocking.byPrefix(RDFS.label.getURI(), 3);
+    assertEquals("It should use the lower cased prefix of the lexical form",
+      Set.of("pad"), keyFunction.sourceKeys(instance("urn:a", RDFS.label.getURI(), " Paderborn@de")));
+    assertEquals("It should keep values shorter than the prefix",
+      Set.of("ab"), keyFunction.sourceKeys(instance("urn:b", RDFS.label.getURI(), "AB")));
+    assertEquals("It should yield one key per value",
+      Set.of("pad", "ber"), keyFunction.targetKeys(instance("urn:c", RDFS.label.getURI(), "Paderborn", "Berlin")));
+    assertTrue("It should yield no key without values",
+      keyFunction.sourceKeys(instance("urn:d", RDFS.comment.getURI(), "Paderborn")).isEmpty());
+    assertEquals(Set.of(RDFS.label.getURI()), keyFunction.getProperties());
+  }
+
+  @Test
+  public void byType() {
+    LinkBlocking.KeyFunction keyFunction = LinkBlocking.byValue(RDF.type.getURI());
+    Instance city = instance("urn:a", RDF.type.getURI(), "http://example.org/City", "http://example.org/Place");
+    assertEquals("It should use every value as key",
+      Set.of("http://example.org/City", "http://example.org/Place"), keyFunction.sourceKeys(city));
+    assertTrue("It should block instances of a common type together",
+      shareBlock(keyFunction, city, instance("urn:b", RDF.type.getURI(), "http://example.org/City")));
+    assertFalse("It should separate instances of different types",
+      shareBlock(keyFunction, city, instance("urn:c", RDF.type.getURI(), "http://example.org/Person")));
+  }
+
+  @Test
+  public void byGeoTile() {
+    LinkBlocking.KeyFunction keyFunction = LinkBlocking.byGeoTile(1);
+    Instance paderborn = located("urn:paderborn", 51.72, 8.75);
+    assertEquals("It should place sources into a single tile", 1, keyFunction.sourceKeys(paderborn).size());
+    assertEquals("It should place targets into the neighbouring tiles as well",
+      9, keyFunction.targetKeys(paderborn).size());
+    assertTrue("It should compare instances in neighbouring tiles",
+      shareBlock(keyFunction, paderborn, located("urn:bielefeld", 52.02, 8.53)));
+    assertTrue("It should compare instances across tile borders",
+      shareBlock(keyFunction, paderborn, located("urn:kassel", 51.31, 9.49)));
+    assertFalse("It should separate distant instances",
+      shareBlock(keyFunction, paderborn, located("urn:rome", 41.9, 12.5)));
+    assertTrue("It should treat malformed coordinates as missing",
+      keyFunction.sourceKeys(instance("urn:x", LinkBlocking.LATITUDE, "north")).isEmpty());
+  }
+
+  @Test
+  public void byGeoTileAcrossAntimeridian() {
+    for (double tileSize : new double[]{1, 0.7, 7}) {
+      LinkBlocking.KeyFunction keyFunction = LinkBlocking.byGeoTile(tileSize);
+      Instance east = located("urn:east", -16.5, 179.9);
+      Instance west = located("urn:west", -16.5, -179.9);
+      assertTrue("It should compare instances on both sides of the antimeridian with tile size " + tileSize,
+        shareBlock(keyFunction, east, west));
+      assertTrue("It should compare instances on both sides of the antimeridian with tile size " + tileSize,
+        shareBlock(keyFunction, west, east));
+      assertEquals("It should map 180 and -180 degrees to the same tile",
+        keyFunction.sourceKeys(located("urn:a", 0, 180)), keyFunction.sourceKeys(located("urn:b", 0, -180)));
+    }
+  }
+
+  @Test
+  public void invalidTileSize() {
+    try {
+      LinkBlocking.byGeoTile(0);
+      fail("It should reject tiles without extent");
+    } catch (IllegalArgumentException ignored) {
+    }
+  }
+
+}
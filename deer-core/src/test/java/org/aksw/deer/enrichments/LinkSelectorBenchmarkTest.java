@@ -0,0 +1,107 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.vocabulary.OWL;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Benchmark of the select modes on a mapping with millions of links.
+ * Skipped unless the system property {@code deer.benchmark} is {@code true}, run it with
+ * {@code mvn -pl deer-core test -Dtest=LinkSelectorBenchmarkTest -Ddeer.benchmark=true}.
+ */
+public class LinkSelectorBenchmarkTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(LinkSelectorBenchmarkTest.class);
+
+  private static final int SOURCES = 500_000;
+  private static final int LINKS_PER_SOURCE = 8;
+  private static final int TARGETS = 1_000_000;
+  private static final int ROUNDS = 5;
+
+  private static AMapping mapping;
+
+  @BeforeClass
+  public static void setUp() {
+    assumeTrue("Benchmarks are only run with -Ddeer.benchmark=true", Boolean.getBoolean("deer.benchmark"));
+    Random rnd = new Random(42);
+    mapping = MappingFactory.createDefaultMapping();
+    for (int i = 0; i < SOURCES; i++) {
+      String source = "http://example.org/source/" + i;
+      for (int j = 0; j < LINKS_PER_SOURCE; j++) {
+        mapping.add(source, "http://example.org/target/" + rnd.nextInt(TARGETS), rnd.nextInt(1000) / 1000d);
+      }
+    }
+    logger.info("Generated mapping of {} links.", mapping.size());
+  }
+
+  @Test
+  public void best() {
+    assertEquals("It should select a single link", 1, run("best", LinkSelector::best));
+  }
+
+  @Test
+  public void bestPerSource() {
+    long selected = run("best1toN", LinkSelector::bestPerSource);
+    assertTrue("It should select at least one link per source", selected >= SOURCES);
+  }
+
+  @Test
+  public void bestOneToOne() {
+    long selected = run("best1to1", LinkSelector::bestOneToOne);
+    assertTrue("It should select at most one link per source", selected > 0 && selected <= SOURCES);
+  }
+
+  /**
+   * @return the number of links selected in the last round
+   */
+  private static long run(String name, BiConsumer<AMapping, LinkSink> selector) {
+    long selected = 0;
+    for (int round = 0; round < ROUNDS; round++) {
+      LinkSink sink = new LinkSink(OWL.sameAs, false) {
+        @Override
+        protected void write(String subject, Property predicate, String object) {
+        }
+
+        @Override
+        public void close() {
+        }
+      };
+      long start = System.nanoTime();
+      selector.accept(mapping, sink);
+      long elapsed = System.nanoTime() - start;
+      selected = sink.getCount();
+      logger.info("{} round {}: selected {} links in {}ms", name, round, selected, elapsed / 1_000_000);
+    }
+    return selected;
+  }
+
+}
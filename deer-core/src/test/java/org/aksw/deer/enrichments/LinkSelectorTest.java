@@ -0,0 +1,131 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.vocabulary.OWL;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class LinkSelectorTest {
+
+  private AMapping mapping;
+  private List<String> links;
+  private LinkSink sink;
+
+  @Before
+  public void setUp() {
+    mapping = MappingFactory.createDefaultMapping();
+    mapping.add("urn:s1", "urn:t1", 0.9);
+    mapping.add("urn:s1", "urn:t2", 0.8);
+    mapping.add("urn:s2", "urn:t1", 0.95);
+    mapping.add("urn:s2", "urn:t3", 0.7);
+    mapping.add("urn:s3", "urn:t1", 0.6);
+    mapping.add("urn:s3", "urn:t2", 0.6);
+    links = new ArrayList<>();
+    sink = new LinkSink(OWL.sameAs, false) {
+      @Override
+      protected void write(String subject, Property predicate, String object) {
+        links.add(subject + " " + object);
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  @Test
+  public void all() {
+    LinkSelector.all(mapping, sink);
+    assertEquals("It should keep all links", 6, links.size());
+    assertEquals("It should count all links", 6, sink.getCount());
+  }
+
+  @Test
+  public void best() {
+    LinkSelector.best(mapping, sink);
+    assertEquals("It should keep only the best link", List.of("urn:s2 urn:t1"), links);
+  }
+
+  @Test
+  public void bestBreaksTiesDeterministically() {
+    AMapping ties = MappingFactory.createDefaultMapping();
+    ties.add("urn:s2", "urn:t1", 0.5);
+    ties.add("urn:s1", "urn:t2", 0.5);
+    ties.add("urn:s1", "urn:t1", 0.5);
+    LinkSelector.best(ties, sink);
+    assertEquals("It should prefer the smallest source and target", List.of("urn:s1 urn:t1"), links);
+  }
+
+  @Test
+  public void bestOfEmptyMapping() {
+    LinkSelector.best(MappingFactory.createDefaultMapping(), sink);
+    assertTrue("It should not select anything", links.isEmpty());
+  }
+
+  @Test
+  public void bestPerSource() {
+    LinkSelector.bestPerSource(mapping, sink);
+    links.sort(String::compareTo);
+    assertEquals("It should keep the best links of each source, including ties",
+      List.of("urn:s1 urn:t1", "urn:s2 urn:t1", "urn:s3 urn:t1", "urn:s3 urn:t2"), links);
+  }
+
+  @Test
+  public void bestOneToOne() {
+    LinkSelector.bestOneToOne(mapping, sink);
+    assertEquals("It should greedily pick the best available links",
+      List.of("urn:s2 urn:t1", "urn:s1 urn:t2"), links);
+  }
+
+  @Test
+  public void bestOneToOneMatchesSortedGreedyPass() {
+    AMapping random = MappingFactory.createDefaultMapping();
+    Random rnd = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      random.add("urn:s" + rnd.nextInt(100), "urn:t" + rnd.nextInt(100), rnd.nextInt(20) / 20d);
+    }
+    List<LinkSelector.Candidate> sorted = new ArrayList<>();
+    random.getMap().forEach((s, targets) ->
+      targets.forEach((t, c) -> sorted.add(new LinkSelector.Candidate(s, t, c))));
+    sorted.sort(LinkSelector.BEST_FIRST);
+    List<String> expected = new ArrayList<>();
+    Set<String> sources = new HashSet<>();
+    Set<String> targets = new HashSet<>();
+    for (LinkSelector.Candidate c : sorted) {
+      if (!sources.contains(c.source) && !targets.contains(c.target)) {
+        sources.add(c.source);
+        targets.add(c.target);
+        expected.add(c.source + " " + c.target);
+      }
+    }
+    LinkSelector.bestOneToOne(random, sink);
+    assertEquals("It should select the same links as a greedy pass over all sorted links", expected, links);
+  }
+
+}
@@ -17,6 +17,8 @@
  */
 package org.aksw.deer.enrichments;
 
+import org.aksw.deer.RunResources;
+import org.aksw.faraday_cage.engine.FaradayCageContext;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.ResourceFactory;
@@ -24,8 +26,12 @@ import org.apache.jena.vocabulary.OWL;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -65,10 +71,49 @@ public class MergeEnrichmentOperatorTest {
     op.initPluginId(ResourceFactory.createResource("urn:ex/test/merge-test"));
   }
 
+  private void initParameters(String mergeMode) {
+    op.initParameters(op.createParameterMap()
+      .add(MergeEnrichmentOperator.MERGE_MODE, ResourceFactory.createStringLiteral(mergeMode))
+      .init());
+  }
+
   @Test
   public void safeApply() {
+    op.initParameters(op.createParameterMap().init());
+    Model actual = op.apply(List.of(source, target)).get(0);
+    assertTrue("It should merge the models", expected.isIsomorphicWith(actual));
+  }
+
+  @Test
+  public void safeApplyLazy() {
+    initParameters("lazy");
+    target.add(source.listStatements().nextStatement());
+    Model actual = op.apply(List.of(source, target)).get(0);
+    assertTrue("It should merge the models", expected.isIsomorphicWith(actual));
+    assertEquals("It should report shared statements only once", expected.size(), actual.size());
+    assertEquals("It should report shared statements only once", expected.size(), actual.listStatements().toList().size());
+    actual.add(actual.createResource("http://example.org/subject5"), OWL.sameAs, actual.createResource("http://example.org/subject6"));
+    assertEquals("It should not write through to its inputs", 4, source.size());
+    assertEquals("It should accept writes", expected.size() + 1, actual.size());
+  }
+
+  @Test
+  public void safeApplyExternal() throws IOException {
+    Path spillDirectory = Files.createTempDirectory("merge-test");
+    op.initParameters(op.createParameterMap()
+      .add(MergeEnrichmentOperator.MERGE_MODE, ResourceFactory.createStringLiteral("external"))
+      .add(MergeEnrichmentOperator.SPILL_DIRECTORY, ResourceFactory.createStringLiteral(spillDirectory.toString()))
+      .add(MergeEnrichmentOperator.RUN_SIZE, ResourceFactory.createTypedLiteral(1))
+      .init());
+    target.add(source.listStatements().nextStatement());
     Model actual = op.apply(List.of(source, target)).get(0);
     assertTrue("It should merge the models", expected.isIsomorphicWith(actual));
+    assertEquals("It should eliminate duplicates", expected.size(), actual.size());
+    RunResources.release(FaradayCageContext.getRunId());
+    try (Stream<Path> files = Files.list(spillDirectory)) {
+      assertEquals("It should delete its store once the run has ended", 0, files.count());
+    }
+    Files.delete(spillDirectory);
   }
 
   @Test
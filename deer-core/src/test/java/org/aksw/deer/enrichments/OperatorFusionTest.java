@@ -0,0 +1,125 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.deer.util.FusedTripleGraph;
+import org.aksw.faraday_cage.engine.ValidatableParameterMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class OperatorFusionTest {
+
+  private FilterEnrichmentOperator filter;
+  private PredicateConformationEnrichmentOperator conformation;
+  private Model input, expected;
+
+  @Before
+  public void setUp() {
+    Model configuration = ModelFactory.createDefaultModel();
+    configuration.read(new StringReader(
+      "@prefix deer: <https://w3id.org/deer/> ." +
+        "@prefix fcage: <https://w3id.org/fcage/> ." +
+        "@prefix ex: <http://example.org/> ." +
+        "ex:filter a deer:FilterEnrichmentOperator ; fcage:hasOutput ex:conformation ." +
+        "ex:conformation a deer:PredicateConformationEnrichmentOperator ; fcage:hasInput ex:filter ."
+    ), null, "TTL");
+    input = ModelFactory.createDefaultModel();
+    input.read(new StringReader(
+      "@prefix ex: <http://example.org/> ." +
+        "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> ." +
+        "ex:subject rdfs:comment \"comment\" ; rdfs:label \"label\" ." +
+        "ex:subject2 rdfs:comment \"comment\" ; rdfs:seeAlso ex:subject ."
+    ), null, "TTL");
+    expected = ModelFactory.createDefaultModel();
+    expected.read(new StringReader(
+      "@prefix ex: <http://example.org/> ." +
+        "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> ." +
+        "ex:subject rdfs:label \"comment\" ." +
+        "ex:subject2 rdfs:label \"comment\" ."
+    ), null, "TTL");
+    filter = new FilterEnrichmentOperator();
+    ValidatableParameterMap filterParameters = filter.createParameterMap();
+    filterParameters.add(FilterEnrichmentOperator.SELECTOR, filterParameters.createResource()
+      .addProperty(FilterEnrichmentOperator.PREDICATE, RDFS.comment)
+    ).init();
+    filter.initDegrees(1, 1);
+    filter.initPluginId(configuration.getResource("http://example.org/filter"));
+    filter.initParameters(filterParameters);
+    conformation = new PredicateConformationEnrichmentOperator();
+    ValidatableParameterMap conformationParameters = conformation.createParameterMap();
+    conformationParameters.add(PredicateConformationEnrichmentOperator.OPERATION, conformationParameters.createResource()
+      .addProperty(PredicateConformationEnrichmentOperator.SOURCE_PREDICATE, RDFS.comment)
+      .addProperty(PredicateConformationEnrichmentOperator.TARGET_PREDICATE, RDFS.label)
+    ).init();
+    conformation.initDegrees(1, 1);
+    conformation.initPluginId(configuration.getResource("http://example.org/conformation"));
+    conformation.initParameters(conformationParameters);
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty(OperatorFusion.ENABLED_PROPERTY);
+  }
+
+  @Test
+  public void testFusion() {
+    Model filtered = filter.apply(List.of(input)).get(0);
+    assertTrue("It should defer operators feeding per-triple operators", FusedTripleGraph.isPending(filtered));
+    Model actual = conformation.apply(List.of(filtered)).get(0);
+    assertFalse("It should evaluate the last operator of a chain", FusedTripleGraph.isPending(actual));
+    assertTrue("It should evaluate all fused operators", expected.isIsomorphicWith(actual));
+  }
+
+  @Test
+  public void testObservedConsumer() {
+    Model configuration = conformation.getId().getModel();
+    configuration.read(new StringReader(
+      "@prefix deer: <https://w3id.org/deer/> ." +
+        "@prefix fcage: <https://w3id.org/fcage/> ." +
+        "@prefix ex: <http://example.org/> ." +
+        "ex:conformation fcage:decoratedBy ex:analytics ." +
+        "ex:analytics a deer:SparqlAnalyticsWrapper ."
+    ), null, "TTL");
+    Model filtered = filter.apply(List.of(input)).get(0);
+    assertFalse("It should not defer operators whose consumer is observed by a wrapper",
+      FusedTripleGraph.isPending(filtered));
+  }
+
+  @Test
+  public void testDisabledFusion() {
+    System.setProperty(OperatorFusion.ENABLED_PROPERTY, "false");
+    Model filtered = filter.apply(List.of(input)).get(0);
+    assertFalse("It should not defer operators if fusion is disabled", FusedTripleGraph.isPending(filtered));
+    assertTrue("It should compute the same result",
+      expected.isIsomorphicWith(conformation.apply(List.of(filtered)).get(0)));
+  }
+
+}
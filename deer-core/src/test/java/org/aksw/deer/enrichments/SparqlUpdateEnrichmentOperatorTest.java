@@ -0,0 +1,144 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.enrichments;
+
+import org.aksw.deer.util.DeltaGraph;
+import org.aksw.deer.util.ExecutionGraphTopology;
+import org.aksw.deer.vocabulary.DEER;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class SparqlUpdateEnrichmentOperatorTest {
+
+  private static final String UPDATE =
+    "PREFIX foaf: <http://xmlns.com/foaf/0.1/> " +
+      "DELETE { ?person foaf:givenName 'Bill' } " +
+      "INSERT { ?person foaf:givenName 'William' } " +
+      "WHERE { ?person foaf:givenName 'Bill' }";
+
+  private SparqlUpdateEnrichmentOperator op;
+  private Model input, original, expected;
+
+  @Before
+  public void setUp() {
+    input = ModelFactory.createDefaultModel();
+    input.read(new StringReader(
+      "@prefix ex: <http://example.org/> ." +
+        "@prefix foaf: <http://xmlns.com/foaf/0.1/> ." +
+        "ex:bill foaf:givenName \"Bill\" ." +
+        "ex:bob foaf:givenName \"Bob\" ."
+    ), null, "TTL");
+    original = ModelFactory.createDefaultModel().add(input);
+    expected = ModelFactory.createDefaultModel();
+    expected.read(new StringReader(
+      "@prefix ex: <http://example.org/> ." +
+        "@prefix foaf: <http://xmlns.com/foaf/0.1/> ." +
+        "ex:bill foaf:givenName \"William\" ." +
+        "ex:bob foaf:givenName \"Bob\" ."
+    ), null, "TTL");
+    op = new SparqlUpdateEnrichmentOperator();
+    op.initDegrees(1,1);
+  }
+
+  private void init(Resource id, String query, String updateMode) {
+    op.initPluginId(id);
+    op.initParameters(op.createParameterMap()
+      .add(SparqlUpdateEnrichmentOperator.UPDATE, ResourceFactory.createStringLiteral(query))
+      .add(SparqlUpdateEnrichmentOperator.UPDATE_MODE, ResourceFactory.createStringLiteral(updateMode))
+      .init());
+  }
+
+  @Test
+  public void copy() {
+    init(ResourceFactory.createResource("urn:ex/test/update-test"), UPDATE, "copy");
+    Model actual = op.apply(List.of(input)).get(0);
+    assertTrue("It should apply the update.", expected.isIsomorphicWith(actual));
+    assertTrue("It should leave the input untouched.", original.isIsomorphicWith(input));
+  }
+
+  @Test
+  public void inPlace() {
+    init(ResourceFactory.createResource("urn:ex/test/update-test"), UPDATE, "inPlace");
+    Model actual = op.apply(List.of(input)).get(0);
+    assertSame("It should return its input model.", input, actual);
+    assertTrue("It should apply the update.", expected.isIsomorphicWith(actual));
+  }
+
+  @Test
+  public void inPlaceRollback() {
+    init(ResourceFactory.createResource("urn:ex/test/update-test"),
+      UPDATE + " ; LOAD <file:///does/not/exist.ttl>", "inPlace");
+    try {
+      op.apply(List.of(input));
+      fail("The update should fail.");
+    } catch (RuntimeException ignored) {
+    }
+    assertTrue("It should roll back all changes to the input.", original.isIsomorphicWith(input));
+  }
+
+  @Test
+  public void autoDetectsSingleConsumer() {
+    Model configuration = ModelFactory.createDefaultModel();
+    Resource reader = configuration.createResource("urn:ex/test/reader");
+    Resource update = configuration.createResource("urn:ex/test/update-test");
+    reader.addProperty(ExecutionGraphTopology.HAS_OUTPUT, update);
+    init(update, UPDATE, "auto");
+    assertSame("It should update a single-consumer input in place.", input, op.apply(List.of(input)).get(0));
+    configuration.createResource("urn:ex/test/other").addProperty(ExecutionGraphTopology.HAS_INPUT, reader);
+    Model otherInput = ModelFactory.createDefaultModel().add(original);
+    assertNotSame("It should copy an input with more than one consumer.", otherInput, op.apply(List.of(otherInput)).get(0));
+    assertTrue("It should leave a shared input untouched.", original.isIsomorphicWith(otherInput));
+  }
+
+  @Test
+  public void autoCopiesObservedInput() {
+    Model configuration = ModelFactory.createDefaultModel();
+    Resource reader = configuration.createResource("urn:ex/test/reader");
+    Resource update = configuration.createResource("urn:ex/test/update-test");
+    reader.addProperty(ExecutionGraphTopology.HAS_OUTPUT, update);
+    reader.addProperty(ExecutionGraphTopology.DECORATED_BY, configuration.createResource("urn:ex/test/analytics")
+      .addProperty(RDF.type, DEER.resource("SparqlAnalyticsWrapper")));
+    update.addProperty(ExecutionGraphTopology.DECORATED_BY, configuration.createResource("urn:ex/test/instrumentation")
+      .addProperty(RDF.type, DEER.resource("InstrumentationWrapper")));
+    init(update, UPDATE, "auto");
+    assertNotSame("It should copy an input observed by a wrapper.", input, op.apply(List.of(input)).get(0));
+    assertTrue("It should leave an observed input untouched.", original.isIsomorphicWith(input));
+  }
+
+  @Test
+  public void deltaInputIsCopied() {
+    init(ResourceFactory.createResource("urn:ex/test/update-test"), UPDATE, "inPlace");
+    Model delta = DeltaGraph.diff(ModelFactory.createDefaultModel().getGraph(), input.getGraph());
+    assertNotSame("It should never update a model carrying a delta in place.", delta, op.safeApply(List.of(delta)).get(0));
+    assertTrue("It should leave the input untouched.", original.isIsomorphicWith(input));
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.io;
+
+import org.aksw.deer.enrichments.SparqlUpdateEnrichmentOperator;
+import org.aksw.deer.util.DeltaGraph;
+import org.aksw.deer.util.ExecutionGraphTopology;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.update.UpdateAction;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class DeltaExecutionTest {
+
+  private static final String UPDATE =
+    "PREFIX ex: <http://example.org/> " +
+      "INSERT { ?s a ex:Big } WHERE { ?s ex:size ?n FILTER(?n > 10) }";
+
+  private static final String KEY = "urn:ex/test/reader DeltaExecutionTest";
+  private SparqlUpdateEnrichmentOperator update;
+  private Model store;
+
+  @Before
+  public void setUp() {
+    System.setProperty(DeltaSnapshots.ENABLED_PROPERTY, "true");
+    Model configuration = ModelFactory.createDefaultModel();
+    Resource reader = configuration.createResource("urn:ex/test/reader");
+    Resource node = configuration.createResource("urn:ex/test/update");
+    Resource writer = configuration.createResource("urn:ex/test/writer");
+    reader.addProperty(ExecutionGraphTopology.HAS_OUTPUT, node);
+    node.addProperty(ExecutionGraphTopology.HAS_OUTPUT, writer);
+    update = new SparqlUpdateEnrichmentOperator();
+    update.initDegrees(1, 1);
+    update.initPluginId(node);
+    update.initParameters(update.createParameterMap()
+      .add(SparqlUpdateEnrichmentOperator.UPDATE, ResourceFactory.createStringLiteral(UPDATE))
+      .init());
+    store = ModelFactory.createDefaultModel();
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty(DeltaSnapshots.ENABLED_PROPERTY);
+  }
+
+  private static Model model(String turtle) {
+    Model model = ModelFactory.createDefaultModel();
+    model.read(new StringReader("@prefix ex: <http://example.org/> ." + turtle), null, "TTL");
+    return model;
+  }
+
+  /**
+   * Reads {@code input} like a reader, applies the update and writes the result to the store the
+   * way {@link SparqlModelWriter} does.
+   */
+  private Model run(String runId, Model input) {
+    Model out = update.apply(List.of(DeltaSnapshots.diff(runId, KEY, input))).get(0);
+    Optional<String> deltaUpdate = SparqlModelWriter.deltaUpdate(out, SparqlModelWriter.DEFAULT_GRAPH);
+    if (deltaUpdate.isPresent()) {
+      if (!deltaUpdate.get().isEmpty()) {
+        UpdateAction.parseExecute(deltaUpdate.get(), store);
+      }
+    } else {
+      store.removeAll().add(out);
+    }
+    DeltaSnapshots.commit(runId);
+    return out;
+  }
+
+  @Test
+  public void derivedTriplesFollowTheirInput() {
+    run("run-1", model("ex:a ex:size 20 . ex:b ex:size 5 ."));
+    assertTrue("It should write the derived triples of the first run.",
+      store.contains(store.createResource("http://example.org/a"), RDF.type, store.createResource("http://example.org/Big")));
+    Model out = run("run-2", model("ex:a ex:size 5 . ex:b ex:size 5 ."));
+    assertFalse("It should not attach deltas to outputs of operators that do not propagate them.",
+      DeltaGraph.of(out).isPresent());
+    assertTrue("It should keep the store in sync with the output.",
+      model("ex:a ex:size 5 . ex:b ex:size 5 .").isIsomorphicWith(store));
+  }
+
+  @Test
+  public void snapshotsAreScopedToWriteTargets() {
+    Model configuration = ModelFactory.createDefaultModel();
+    configuration.read(new StringReader(
+      "@prefix deer: <https://w3id.org/deer/> ." +
+        "@prefix fcage: <https://w3id.org/fcage/> ." +
+        "@prefix ex: <http://example.org/> ." +
+        "ex:input a deer:FileModelReader ; fcage:hasOutput ex:filter ." +
+        "ex:filter a deer:FilterEnrichmentOperator ; fcage:hasOutput ( ex:store ex:file ) ." +
+        "ex:store a deer:SparqlModelWriter ; deer:endpoint <http://example.org/sparql> ; deer:graphName <http://example.org/g> ." +
+        "ex:file a deer:FileModelWriter ." +
+        "ex:unused a deer:FileModelReader ; fcage:hasOutput ex:other ." +
+        "ex:other a deer:FileModelWriter ."
+    ), null, "TTL");
+    assertEquals("It should key snapshots by the endpoints and graphs written downstream.",
+      "<http://example.org/sparql> <http://example.org/g>",
+      String.join(" ", AbstractModelReader.getWriteTargets(configuration.getResource("http://example.org/input")).orElseThrow()));
+    assertTrue("It should not snapshot inputs that reach no SPARQL writer.",
+      AbstractModelReader.getWriteTargets(configuration.getResource("http://example.org/unused")).orElseThrow().isEmpty());
+    assertFalse("It should not snapshot inputs of unknown topology.",
+      AbstractModelReader.getWriteTargets(ResourceFactory.createResource("http://example.org/input")).isPresent());
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class DeltaGraphTest {
+
+  private static Model model(int from, int to) {
+    Model model = ModelFactory.createDefaultModel();
+    for (int i = from; i < to; i++) {
+      model.add(model.createResource("urn:example:" + i), RDFS.label, "label " + i);
+    }
+    return model;
+  }
+
+  private static List<Model> relabel(List<Model> models) {
+    Model result = ModelFactory.createDefaultModel();
+    models.get(0).listStatements().forEachRemaining(stmt ->
+      result.add(stmt.getSubject(), RDFS.comment, stmt.getObject()));
+    return List.of(result);
+  }
+
+  @Test
+  public void testDiff() {
+    Model delta = DeltaGraph.diff(model(0, 10).getGraph(), model(2, 12).getGraph());
+    DeltaGraph graph = DeltaGraph.of(delta).orElseThrow();
+    assertEquals("It should read as the current model", 10, delta.size());
+    assertEquals("It should record added triples", 2, graph.getAdded().size());
+    assertEquals("It should record removed triples", 2, graph.getRemoved().size());
+    assertTrue("It should record the right triples",
+      model(10, 12).getGraph().find(Node.ANY, Node.ANY, Node.ANY).toSet().equals(graph.getAdded()));
+  }
+
+  @Test
+  public void testModificationsUpdateDelta() {
+    Model delta = DeltaGraph.diff(model(0, 10).getGraph(), model(2, 12).getGraph());
+    delta.add(model(0, 1));
+    delta.remove(model(11, 12));
+    DeltaGraph graph = DeltaGraph.of(delta).orElseThrow();
+    assertEquals("It should cancel out re-added triples", 1, graph.getRemoved().size());
+    assertEquals("It should cancel out removed additions", 1, graph.getAdded().size());
+    assertTrue("It should keep the delta on deep copies",
+      DeltaGraph.of(DeltaGraph.copyOf(delta)).isPresent());
+    assertFalse("It should not attach deltas to plain models",
+      DeltaGraph.of(DeltaGraph.copyOf(model(0, 1))).isPresent());
+  }
+
+  @Test
+  public void testPropagate() {
+    Model delta = DeltaGraph.diff(model(0, 10).getGraph(), model(2, 12).getGraph());
+    List<Model> out = DeltaGraph.propagate(List.of(delta), DeltaGraphTest::relabel);
+    DeltaGraph graph = DeltaGraph.of(out.get(0)).orElseThrow();
+    assertEquals("It should compute the full output", 10, out.get(0).size());
+    assertEquals("It should derive added triples", 2, graph.getAdded().size());
+    assertEquals("It should derive removed triples", 2, graph.getRemoved().size());
+    assertTrue("It should derive the right triples", graph.getAdded().stream()
+      .allMatch(t -> t.getPredicate().equals(RDFS.comment.asNode()) && out.get(0).getGraph().contains(t)));
+    assertFalse("It should not attach deltas if inputs have none",
+      DeltaGraph.of(DeltaGraph.propagate(List.of(model(0, 10)), DeltaGraphTest::relabel).get(0)).isPresent());
+  }
+
+}
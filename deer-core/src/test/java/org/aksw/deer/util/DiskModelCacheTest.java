@@ -0,0 +1,99 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class DiskModelCacheTest {
+
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("deer-disk-cache");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+    }
+  }
+
+  private static Model model(int size) {
+    Model model = ModelFactory.createDefaultModel();
+    for (int i = 0; i < size; i++) {
+      model.add(model.createResource("urn:example:" + i), RDFS.label, "label " + i);
+    }
+    return model;
+  }
+
+  @Test
+  public void testRoundTrip() {
+    DiskModelCache cache = new DiskModelCache(directory, Long.MAX_VALUE);
+    Model model = model(10);
+    cache.put("key", Arrays.asList(model, null));
+    Optional<List<Model>> restored = cache.get("key");
+    assertTrue("It should find stored entries", restored.isPresent());
+    assertEquals("It should restore all slots", 2, restored.get().size());
+    assertTrue("It should restore the models", model.isIsomorphicWith(restored.get().get(0)));
+    assertNull("It should restore null slots", restored.get().get(1));
+    assertFalse("It should miss unknown keys", cache.get("other").isPresent());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    DiskModelCache cache = new DiskModelCache(directory, Long.MAX_VALUE);
+    cache.put("first", List.of(model(100)));
+    long entrySize = cache.size();
+    DiskModelCache bounded = new DiskModelCache(directory, entrySize * 2);
+    Thread.sleep(1100);
+    bounded.put("second", List.of(model(100)));
+    Thread.sleep(1100);
+    bounded.get("first");
+    bounded.put("third", List.of(model(100)));
+    assertTrue("It should stay within its bound", bounded.size() <= entrySize * 2);
+    assertTrue("It should keep recently used entries", bounded.get("first").isPresent());
+    assertFalse("It should evict the least recently used entry", bounded.get("second").isPresent());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectInvalidKeys() {
+    new DiskModelCache(directory, 1).get("../escape");
+  }
+
+}
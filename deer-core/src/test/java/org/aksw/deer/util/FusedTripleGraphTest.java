@@ -0,0 +1,91 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class FusedTripleGraphTest {
+
+  private static Model model(int size) {
+    Model model = ModelFactory.createDefaultModel();
+    for (int i = 0; i < size; i++) {
+      model.add(model.createResource("urn:example:" + i), RDFS.label, "label " + i);
+    }
+    return model;
+  }
+
+  @Test
+  public void testFusion() {
+    final AtomicInteger calls = new AtomicInteger();
+    final FusedTripleGraph.TripleMapper relabel = (t, sink) -> {
+      calls.incrementAndGet();
+      sink.accept(Triple.create(t.getSubject(), RDFS.comment.asNode(), t.getObject()));
+    };
+    final FusedTripleGraph.TripleMapper duplicate = (t, sink) -> {
+      sink.accept(t);
+      sink.accept(Triple.create(t.getSubject(), RDFS.seeAlso.asNode(), NodeFactory.createURI("urn:example:x")));
+    };
+    Model first = FusedTripleGraph.map(model(10), relabel, true);
+    assertTrue("It should defer the evaluation", FusedTripleGraph.isPending(first));
+    assertEquals("It should not scan before the result is accessed", 0, calls.get());
+    Model second = FusedTripleGraph.map(first, duplicate, false);
+    assertFalse("It should evaluate eagerly if asked to", FusedTripleGraph.isPending(second));
+    assertEquals("It should scan the input once", 10, calls.get());
+    assertEquals("It should apply all mappers", 20, second.size());
+    assertTrue("It should leave the fused graph pending", FusedTripleGraph.isPending(first));
+    assertEquals("It should evaluate pending graphs on access", 10, first.size());
+    assertFalse("It should not be pending after being accessed", FusedTripleGraph.isPending(first));
+  }
+
+  @Test
+  public void testStreaming() {
+    Model mapped = FusedTripleGraph.map(model(10), (t, sink) -> sink.accept(t), true);
+    final AtomicInteger streamed = new AtomicInteger();
+    TripleStreams.forEach(mapped.getGraph(), t -> streamed.incrementAndGet());
+    assertEquals("It should stream all mapped triples", 10, streamed.get());
+    assertFalse("It should not be pending after being streamed", FusedTripleGraph.isPending(mapped));
+    assertFalse("It should not count as materialized after being streamed", TripleStreams.isMaterialized(mapped));
+    try {
+      mapped.size();
+      fail("It should refuse access after being streamed");
+    } catch (IllegalStateException ignored) {
+    }
+  }
+
+  @Test
+  public void testCopyOnWrite() {
+    Model source = model(5);
+    Model mapped = FusedTripleGraph.map(source, (t, sink) -> sink.accept(t), true);
+    mapped.removeAll();
+    assertEquals("It should never modify the source graph", 5, source.size());
+    assertTrue("It should apply modifications to the result", mapped.isEmpty());
+  }
+
+}
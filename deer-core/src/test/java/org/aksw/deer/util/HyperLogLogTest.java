@@ -0,0 +1,52 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class HyperLogLogTest {
+
+  @Test
+  public void estimateSmallCardinality() {
+    HyperLogLog hll = new HyperLogLog();
+    for (int i = 0; i < 1000; i++) {
+      hll.add("http://example.org/" + (i % 100));
+    }
+    assertEquals("It should count small cardinalities almost exactly", 100, hll.estimate(), 2);
+  }
+
+  @Test
+  public void estimateLargeCardinality() {
+    HyperLogLog hll = new HyperLogLog();
+    for (int i = 0; i < 1_000_000; i++) {
+      hll.add("http://example.org/" + i);
+    }
+    assertEquals("It should stay within a few standard errors", 1_000_000, hll.estimate(), 30_000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectInvalidPrecision() {
+    new HyperLogLog(2);
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class ModelFingerprintTest {
+
+  private static Model model(int from, int to, boolean reverse) {
+    Model model = ModelFactory.createDefaultModel();
+    for (int i = 0; i < to - from; i++) {
+      int n = reverse ? to - 1 - i : from + i;
+      model.add(model.createResource("urn:example:" + n), RDFS.label, "label " + n);
+    }
+    return model;
+  }
+
+  @Test
+  public void testOrderIndependence() {
+    assertEquals("It should not depend on insertion order",
+      ModelFingerprint.of(model(0, 100, false)), ModelFingerprint.of(model(0, 100, true)));
+  }
+
+  @Test
+  public void testSensitivity() {
+    Model a = model(0, 100, false);
+    Model b = model(0, 100, false);
+    b.remove(b.createResource("urn:example:42"), RDFS.label, b.createLiteral("label 42"));
+    b.add(b.createResource("urn:example:42"), RDFS.label, "label 43");
+    assertNotEquals("It should change with the content", ModelFingerprint.of(a), ModelFingerprint.of(b));
+    assertNotEquals("It should change with the size", ModelFingerprint.of(a), ModelFingerprint.of(model(0, 99, false)));
+  }
+
+  @Test
+  public void testDescriptionFollowsBlankNodes() {
+    Model a = ModelFactory.createDefaultModel();
+    Resource node = a.createResource("urn:example:node");
+    node.addProperty(RDFS.label, "node").addProperty(RDFS.seeAlso, a.createResource().addProperty(RDFS.label, "x"));
+    Model b = ModelFactory.createDefaultModel();
+    Resource other = b.createResource("urn:example:node");
+    other.addProperty(RDFS.seeAlso, b.createResource().addProperty(RDFS.label, "x")).addProperty(RDFS.label, "node");
+    assertEquals("It should describe equal structures equally",
+      ModelFingerprint.describe(node), ModelFingerprint.describe(other));
+    other.getPropertyResourceValue(RDFS.seeAlso).addProperty(RDFS.comment, "changed");
+    assertNotEquals("It should include nested blank nodes",
+      ModelFingerprint.describe(node), ModelFingerprint.describe(other));
+  }
+
+}
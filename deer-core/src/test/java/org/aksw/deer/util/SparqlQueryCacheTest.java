@@ -0,0 +1,64 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.update.UpdateRequest;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class SparqlQueryCacheTest {
+
+  private static final String FIRST = "SELECT * WHERE { ?s ?p ?o }";
+  private static final String SECOND = "ASK { ?s a ?o }";
+  private static final String THIRD = "CONSTRUCT { ?s ?p ?o } WHERE { ?s ?p ?o }";
+
+  @Test
+  public void testHitsAndMisses() {
+    SparqlQueryCache cache = new SparqlQueryCache(4);
+    Query query = cache.getQuery(FIRST);
+    assertEquals("It should count the first lookup as miss", 1, cache.getMisses());
+    assertSame("It should return the parsed query on later lookups", query, cache.getQuery(FIRST));
+    assertEquals("It should count later lookups as hits", 1, cache.getHits());
+    UpdateRequest update = cache.getUpdateRequest("INSERT DATA { <urn:s> <urn:p> <urn:o> }");
+    assertSame(update, cache.getUpdateRequest("INSERT DATA { <urn:s> <urn:p> <urn:o> }"));
+    assertEquals("It should count update requests as well", 2, cache.getHits());
+    assertEquals(2, cache.getMisses());
+    assertEquals("It should report the entries of both caches", 2, cache.getStatistics().getInt("size"));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    SparqlQueryCache cache = new SparqlQueryCache(2);
+    Query first = cache.getQuery(FIRST);
+    Query second = cache.getQuery(SECOND);
+    // makes the first query the most recently used one
+    cache.getQuery(FIRST);
+    cache.getQuery(THIRD);
+    assertEquals("It should not exceed its capacity", 2, cache.getStatistics().getInt("size"));
+    assertSame("It should keep recently used queries", first, cache.getQuery(FIRST));
+    long misses = cache.getMisses();
+    assertNotSame("It should evict the least recently used query", second, cache.getQuery(SECOND));
+    assertEquals("It should parse evicted queries again", misses + 1, cache.getMisses());
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * DEER Core Library - DEER - RDF Dataset Enrichment Framework
+ * Copyright © 2013 Data Science Group (DICE) (kevin.dressler@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.deer.util;
+
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class StreamingGraphTest {
+
+  private static Triple triple(int i) {
+    return Triple.create(NodeFactory.createURI("urn:example:" + i), RDFS.label.asNode(),
+      NodeFactory.createLiteral("label " + i));
+  }
+
+  private static StreamingGraph.TripleSource source(int size) {
+    return sink -> {
+      for (int i = 0; i < size; i++) {
+        sink.accept(triple(i));
+      }
+    };
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty("deer.streaming.queueSize");
+  }
+
+  @Test
+  public void testStreaming() {
+    Model model = StreamingGraph.produce(source(5000));
+    assertTrue("It should be pending before being consumed", TripleStreams.isPending(model));
+    final AtomicInteger streamed = new AtomicInteger();
+    TripleStreams.forEach(model.getGraph(), t -> streamed.incrementAndGet());
+    assertEquals("It should stream all triples in order", 5000, streamed.get());
+    assertFalse("It should not be pending after being consumed", TripleStreams.isPending(model));
+    try {
+      TripleStreams.forEach(model.getGraph(), t -> {});
+      fail("It should refuse to stream twice");
+    } catch (IllegalStateException ignored) {
+    }
+  }
+
+  @Test
+  public void testBuffering() {
+    Model model = StreamingGraph.produce(source(100));
+    assertEquals("It should buffer all triples on random access", 100, model.size());
+    assertTrue("It should answer lookups from the buffer", model.getGraph().contains(triple(42)));
+    assertTrue("It should count as materialized once buffered", TripleStreams.isMaterialized(model));
+  }
+
+  @Test
+  public void testBackpressure() throws InterruptedException {
+    System.setProperty("deer.streaming.queueSize", "1");
+    final AtomicInteger produced = new AtomicInteger();
+    final CountDownLatch blocked = new CountDownLatch(1);
+    Model model = StreamingGraph.produce(sink -> {
+      for (int i = 0; i < 10_000; i++) {
+        sink.accept(triple(i));
+        if (produced.incrementAndGet() == 1024) {
+          blocked.countDown();
+        }
+      }
+    });
+    assertTrue("It should start producing right away", blocked.await(5, TimeUnit.SECONDS));
+    Thread.sleep(200);
+    // one batch in the queue and one waiting to be handed over
+    assertTrue("It should block the producer while the queue is full", produced.get() <= 2 * 1024);
+    assertEquals("It should stream all triples after all", 10_000, model.size());
+  }
+
+  @Test
+  public void testErrorPropagation() {
+    Model model = StreamingGraph.produce(sink -> {
+      sink.accept(triple(0));
+      throw new IllegalArgumentException("broken input");
+    });
+    try {
+      TripleStreams.forEach(model.getGraph(), t -> {});
+      fail("It should rethrow errors of the producer");
+    } catch (IllegalArgumentException e) {
+      assertEquals("It should rethrow the original error", "broken input", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testInterruptedProducer() {
+    Model model = StreamingGraph.produce(sink -> {
+      Thread.currentThread().interrupt();
+      for (int i = 0; i < 2048; i++) {
+        sink.accept(triple(i));
+      }
+    });
+    try {
+      TripleStreams.forEach(model.getGraph(), t -> {});
+      fail("It should fail instead of waiting for an interrupted producer");
+    } catch (IllegalStateException ignored) {
+    }
+  }
+
+  @Test
+  public void testConcat() {
+    Model first = StreamingGraph.produce(source(10));
+    Model second = ModelFactory.createDefaultModel();
+    second.getGraph().add(triple(0));
+    Model concatenated = StreamingGraph.concat(List.of(first, second));
+    final AtomicInteger streamed = new AtomicInteger();
+    TripleStreams.forEach(concatenated.getGraph(), t -> streamed.incrementAndGet());
+    assertEquals("It should stream all triples without removing duplicates", 11, streamed.get());
+    assertFalse("It should consume pending inputs", TripleStreams.isPending(first));
+  }
+
+}